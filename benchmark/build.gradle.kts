@@ -0,0 +1,91 @@
+// Microbenchmarks of the per-keystroke suggestion path, run on the host JVM
+// against libcdict built for the host. Run with:
+//   ./gradlew -Pbenchmark :benchmark:jmh
+// The dictionaries are built from the sample corpus with cdict-tool, which
+// must be in PATH or passed with -PcdictTool=<path>.
+
+plugins {
+  java
+  id("me.champeau.jmh") version "0.7.2"
+}
+
+val cdictDir = rootProject.projectDir.resolve("vendor/cdict")
+val corpus = cdictDir.resolve("tests/corpus/ocaml_manual.txt")
+val nativeDir = layout.buildDirectory.dir("native")
+val dictsDir = layout.buildDirectory.dir("dicts")
+// Number of words of the corpus used to build each dictionary. 0 means the
+// whole corpus.
+val dictSizes = listOf(5000, 40000, 0)
+
+java {
+  sourceCompatibility = JavaVersion.VERSION_1_8
+  targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+  named("main") {
+    java.srcDirs(cdictDir.resolve("java/juloo.cdict"))
+    // Pure Java and shared with the keyboard.
+    java.srcDir(rootProject.projectDir.resolve("srcs/com.overboard.keyboard"))
+    java.include("Cdict.java", "suggestions/Ranking.java")
+  }
+  named("jmh") {
+    java.srcDirs("com.overboard.keyboard.bench")
+  }
+}
+
+val buildHostCdict by tasks.registering(Exec::class) {
+  val javaHome = System.getProperty("java.home")
+  val out = nativeDir.map { it.file("libcdict_java.so") }
+  inputs.dir(cdictDir.resolve("libcdict"))
+  inputs.dir(cdictDir.resolve("java/jni"))
+  outputs.file(out)
+  doFirst { out.get().asFile.parentFile.mkdirs() }
+  commandLine("cc", "-O2", "-shared", "-fPIC", "-o", out.get().asFile.absolutePath,
+    "-I", cdictDir.resolve("libcdict").absolutePath,
+    "-I", cdictDir.resolve("java/jni").absolutePath,
+    "-I", "$javaHome/include", "-I", "$javaHome/include/linux",
+    "-I", "$javaHome/include/darwin",
+    cdictDir.resolve("libcdict/libcdict.c").absolutePath,
+    cdictDir.resolve("java/jni/juloo_cdict_Cdict.c").absolutePath)
+}
+
+// Truncate the corpus to build dictionaries of different sizes.
+val genBenchCorpora by tasks.registering {
+  val outDir = dictsDir
+  inputs.file(corpus)
+  outputs.dir(outDir)
+  doLast {
+    val words = corpus.readText().split(Regex("\\s+")).filter { it.isNotEmpty() }
+    for (size in dictSizes) {
+      val n = if (size == 0) words.size else minOf(size, words.size)
+      outDir.get().file("corpus_$size.txt").asFile
+        .writeText(words.subList(0, n).joinToString("\n"))
+    }
+  }
+}
+
+val buildBenchDicts = dictSizes.map { size ->
+  tasks.register<Exec>("buildBenchDict$size") {
+    dependsOn(genBenchCorpora)
+    val cdictTool = (findProperty("cdictTool") as String?) ?: "cdict-tool"
+    val dir = dictsDir.get().asFile
+    inputs.file(dir.resolve("corpus_$size.txt"))
+    outputs.file(dir.resolve("dict_$size"))
+    workingDir = dir
+    commandLine(cdictTool, "build", "-o", "dict_$size", "main:corpus_$size.txt")
+  }
+}
+
+jmh {
+  profilers.add("gc")
+  jvmArgs.addAll(
+    "-Djava.library.path=${nativeDir.get().asFile.absolutePath}",
+    "-Dbench.dicts=${dictsDir.get().asFile.absolutePath}",
+    "-Dbench.corpus=${corpus.absolutePath}",
+  )
+}
+
+tasks.named("jmh") {
+  dependsOn(buildHostCdict, buildBenchDicts)
+}
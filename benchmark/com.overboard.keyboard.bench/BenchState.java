@@ -0,0 +1,65 @@
+package com.overboard.keyboard.bench;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import juloo.cdict.Cdict;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** A dictionary and a typing trace shared by the benchmarks. The dictionaries
+    and the corpus are prepared by the Gradle build and passed as the
+    [bench.dicts] and [bench.corpus] properties. */
+@State(Scope.Benchmark)
+public class BenchState
+{
+  /** Number of words of the corpus the dictionary is built from, 0 for the
+      whole corpus. Must match [dictSizes] in build.gradle.kts. */
+  @Param({"5000", "40000", "0"})
+  public int dict_size;
+
+  public Cdict dict;
+
+  /** Words in the order they appear in the corpus, as they would be typed.
+      Taken from the end of the corpus so that they are not all in the smaller
+      dictionaries. */
+  public String[] trace;
+
+  /** Position in [trace], each benchmark invocation types the next word. */
+  int _next = 0;
+
+  static final int TRACE_LENGTH = 4096;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception
+  {
+    File dicts = new File(System.getProperty("bench.dicts"));
+    dict = Cdict.of_file(new File(dicts, "dict_" + dict_size).getPath())[0];
+    trace = read_trace(new File(System.getProperty("bench.corpus")));
+  }
+
+  public String next_word()
+  {
+    String w = trace[_next];
+    _next = (_next + 1) % trace.length;
+    return w;
+  }
+
+  /** Letter-only words, like those the keyboard looks up. */
+  static String[] read_trace(File corpus) throws Exception
+  {
+    String text = new String(Files.readAllBytes(corpus.toPath()),
+        StandardCharsets.UTF_8);
+    List<String> words = new ArrayList<String>();
+    for (String w : text.split("[^\\p{L}]+"))
+      if (w.length() >= 2)
+        words.add(w);
+    int start = Math.max(0, words.size() - TRACE_LENGTH);
+    return words.subList(start, words.size()).toArray(new String[0]);
+  }
+}
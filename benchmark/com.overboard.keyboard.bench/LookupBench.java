@@ -0,0 +1,48 @@
+package com.overboard.keyboard.bench;
+
+import java.util.concurrent.TimeUnit;
+import juloo.cdict.Cdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Latency of each of the [Cdict] native calls for a whole word. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBench
+{
+  static final int COUNT = 3;
+
+  @Benchmark
+  public Cdict.Result find(BenchState s)
+  {
+    return s.dict.find(s.next_word());
+  }
+
+  @Benchmark
+  public int[] suffixes(BenchState s)
+  {
+    return s.dict.suffixes(s.dict.find(s.next_word()), COUNT);
+  }
+
+  @Benchmark
+  public int[] distance(BenchState s)
+  {
+    return s.dict.distance(s.next_word(), 1, COUNT);
+  }
+
+  /** Decoding a word, as done for every suggestion shown. */
+  @Benchmark
+  public String word(BenchState s)
+  {
+    Cdict.Result r = s.dict.find(s.next_word());
+    return r.found ? s.dict.word(r.index) : null;
+  }
+}
@@ -0,0 +1,100 @@
+package com.overboard.keyboard.bench;
+
+import com.overboard.keyboard.suggestions.Ranking;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import juloo.cdict.Cdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Cost of typing a word one character at a time, with a lookup after each
+    keystroke as [Suggestions.query_dict] does. An invocation types a whole
+    word. Compare [typing_extend] and [typing_separate_calls] to see the
+    benefit of the incremental lookup and of the batched native call. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypingBench
+{
+  /** Same values as in [Suggestions]. */
+  static final int CANDIDATES_POOL = 8;
+  static final int NUM_CANDIDATES = 3;
+  static final int DISTANCE = 1;
+
+  @State(Scope.Thread)
+  public static class Buffers
+  {
+    public final Cdict.Candidates candidates =
+      new Cdict.Candidates(CANDIDATES_POOL);
+    public final Ranking ranking = new Ranking(NUM_CANDIDATES);
+  }
+
+  /** The path used by the keyboard: the lookup continues from the previous
+      keystroke and the candidates are fetched in a single call. */
+  @Benchmark
+  public void typing_extend(BenchState s, Buffers b, Blackhole bh)
+  {
+    String word = s.next_word();
+    Cdict.Candidates c = b.candidates;
+    Cdict.Result prev = null;
+    for (int len = 2; len <= word.length(); len++)
+    {
+      s.dict.suggest(word.substring(0, len), prev, len - 1, DISTANCE, c);
+      prev = c.result;
+      bh.consume(rank(b.ranking, c));
+    }
+  }
+
+  /** Every keystroke starts the lookup from the beginning. */
+  @Benchmark
+  public void typing_full_lookup(BenchState s, Buffers b, Blackhole bh)
+  {
+    String word = s.next_word();
+    Cdict.Candidates c = b.candidates;
+    for (int len = 2; len <= word.length(); len++)
+    {
+      s.dict.suggest(word.substring(0, len), null, 0, DISTANCE, c);
+      bh.consume(rank(b.ranking, c));
+    }
+  }
+
+  /** One native call per lookup and per decoded word. */
+  @Benchmark
+  public void typing_separate_calls(BenchState s, Buffers b, Blackhole bh)
+  {
+    String word = s.next_word();
+    Cdict dict = s.dict;
+    Ranking r = b.ranking;
+    for (int len = 2; len <= word.length(); len++)
+    {
+      String prefix = word.substring(0, len);
+      r.clear();
+      Cdict.Result res = dict.find(prefix);
+      if (res.found)
+        r.add(prefix, dict.freq(res.index), Ranking.EXACT, DISTANCE);
+      for (int i : dict.suffixes(res, NUM_CANDIDATES))
+        r.add(dict.word(i), dict.freq(i), Ranking.PREFIX, DISTANCE);
+      for (int i : dict.distance(prefix, DISTANCE, NUM_CANDIDATES))
+        r.add(dict.word(i), dict.freq(i), Ranking.DISTANCE, DISTANCE);
+      bh.consume(r.top());
+    }
+  }
+
+  static List<String> rank(Ranking r, Cdict.Candidates c)
+  {
+    r.clear();
+    for (int i = 0; i < c.count; i++)
+      r.add(c.words[i], c.freqs[i], c.kinds[i], DISTANCE);
+    return r.top();
+  }
+}
@@ -154,8 +154,30 @@ val compileComposeSequences by tasks.registering(Exec::class) {
   doFirst { standardOutput = FileOutputStream(out) }
 }
 
+val genModifierTables by tasks.registering(Exec::class) {
+  val `in` = projectDir.resolve("srcs/compose")
+  val out = projectDir.resolve("srcs/com.overboard.keyboard/ModifierTablesData.java")
+  inputs.dir(`in`)
+  outputs.file(out)
+  doFirst { println("\nGenerating $out") }
+  workingDir = projectDir
+  commandLine("python3", `in`.resolve("gen_modifier_tables.py").absolutePath,
+    `in`.absolutePath)
+  doFirst { standardOutput = FileOutputStream(out) }
+}
+
 tasks.withType(Test::class).configureEach {
-  dependsOn(genLayoutsList, checkKeyboardLayouts, compileComposeSequences, genMethodXml)
+  dependsOn(genLayoutsList, checkKeyboardLayouts, compileComposeSequences,
+    genModifierTables, genMethodXml)
+  // RenderBenchmarkTest compares render times to a reference theme measured
+  // in the same run. They can also be checked against a baseline file of the
+  // same machine, recorded with:
+  //   ./gradlew test -PrenderBaseline=<file> -PrecordRenderBaseline
+  findProperty("renderBaseline")?.let {
+    systemProperty("render_benchmark.baseline", file(it).absolutePath)
+  }
+  systemProperty("render_benchmark.record",
+    (findProperty("recordRenderBaseline") != null).toString())
 }
 
 val initDebugKeystore by tasks.registering(Exec::class) {
@@ -184,5 +206,6 @@ tasks.named("preBuild") {
   // Gradle) but doesn't create a dependency. These rules update files that are
   // checked in the repository that don't need to be updated during regular
   // builds.
-  mustRunAfter(genEmojis, genLayoutsList, compileComposeSequences, genMethodXml)
+  mustRunAfter(genEmojis, genLayoutsList, compileComposeSequences,
+    genModifierTables, genMethodXml)
 }
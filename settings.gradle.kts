@@ -15,3 +15,9 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "Overboard"
+
+// JVM microbenchmarks of the dictionary lookups, see benchmark/build.gradle.kts.
+// Only included with -Pbenchmark so that the JMH plugin and the native build
+// are not needed for the app.
+if (providers.gradleProperty("benchmark").isPresent)
+  include(":benchmark")
@@ -1,5 +1,7 @@
 package com.overboard.keyboard;
 
+import android.os.Handler;
+import android.os.Looper;
 import java.util.Arrays;
 
 public final class ComposeKey
@@ -26,24 +28,7 @@ public final class ComposeKey
       sequence matched. */
   public static KeyValue apply(int prev, char c)
   {
-    char[] states = ComposeKeyData.states;
-    char[] edges = ComposeKeyData.edges;
-    int prev_length = edges[prev];
-    int next = Arrays.binarySearch(states, prev + 1, prev + prev_length, c);
-    if (next < 0)
-      return null;
-    next = edges[next];
-    int next_header = states[next];
-    if (next_header == 0) // Enter a new intermediate state.
-      return KeyValue.makeComposePending(String.valueOf(c), next, 0);
-    else if (next_header == 0xFFFF) // String final state
-    {
-      int next_length = edges[next];
-      return KeyValue.getKeyByName(
-          new String(states, next + 1, next_length - 1));
-    }
-    else // Character final state.
-      return KeyValue.makeCharKey((char)next_header);
+    return _compiled.apply(prev, c);
   }
 
   /** Apply each char of a string to a sequence. Returns [null] if no sequence
@@ -79,6 +64,9 @@ public final class ComposeKey
       - If the header is equal to [-1],
         This is a final state, the remaining cells represent the result string
         which starts at index [s + 1] and has a length of [edges[s] - 1].
+        The result is looked up with [KeyValue.getKeyByName] unless its first
+        character is [0], in which case the rest of the string is the text to
+        type. The latter is used for the user's sequences.
 
       The [edges] array represents the transition state corresponding to each
       accepted inputs.
@@ -87,4 +75,127 @@ public final class ComposeKey
       - If [states[s]] is a transition, [edges[s]] is the index of the state to
         jump into.
       - If [states[s]] is a part of a final state, [edges[s]] is not used. */
+
+  /** Replaced when the user's sequences are loaded, see
+      [UserComposeSequences]. */
+  static volatile Compiled _compiled =
+    new Compiled(ComposeKeyData.states, ComposeKeyData.edges, -1, -1);
+
+  /** Can be called from any thread. */
+  static void set_compiled(Compiled c)
+  {
+    _compiled = c;
+    // [KeyModifier] memoizes the results of compose sequences.
+    new Handler(Looper.getMainLooper()).post(() -> KeyModifier.clear_memo());
+  }
+
+  /** The state machine with faster transitions and results. States with many
+      ASCII transitions, like the initial states, have a direct table for
+      these. The results of each state are resolved once, so string results
+      don't go through [KeyValue.getKeyByName] again. This relies on every
+      intermediate state being reached from a single transition, which is the
+      case as the state machine is a trie. */
+  static final class Compiled
+  {
+    final char[] states;
+    final char[] edges;
+    /** Transitions from state [entry] are looked up in state [entry_target]
+        instead. Initial states are constants in [ComposeKeyData], this allows
+        replacing one with a state added at the end of the arrays. [-1] if
+        unused. */
+    final int entry;
+    final int entry_target;
+    /** For each state, [0] or the index + 1 of its table in [_ascii]. */
+    final char[] _ascii_index;
+    /** Tables of [128] cells, the next state for each ASCII character or [0]
+        if there's no transition. */
+    final char[] _ascii;
+    /** Result of entering each state, filled when first needed. */
+    final KeyValue[] _results;
+
+    /** States with fewer ASCII transitions use a binary search. */
+    static final int MIN_ASCII_TRANSITIONS = 8;
+
+    public Compiled(char[] states_, char[] edges_, int entry_,
+        int entry_target_)
+    {
+      states = states_;
+      edges = edges_;
+      entry = entry_;
+      entry_target = entry_target_;
+      _ascii_index = new char[states.length];
+      _results = new KeyValue[states.length];
+      char[] ascii = new char[0];
+      int n_tables = 0;
+      // The first state is empty.
+      for (int s = 1; s < states.length; s += edges[s])
+      {
+        if (states[s] != 0)
+          continue;
+        int end = s + edges[s];
+        int n = 0;
+        for (int t = s + 1; t < end && states[t] < 128; t++)
+          n++;
+        if (n < MIN_ASCII_TRANSITIONS)
+          continue;
+        if (ascii.length < (n_tables + 1) * 128)
+          ascii = Arrays.copyOf(ascii, ascii.length * 2 + 128);
+        for (int t = s + 1; t < end && states[t] < 128; t++)
+          ascii[n_tables * 128 + states[t]] = edges[t];
+        n_tables++;
+        _ascii_index[s] = (char)n_tables;
+      }
+      _ascii = Arrays.copyOf(ascii, n_tables * 128);
+    }
+
+    public KeyValue apply(int prev, char c)
+    {
+      if (prev == entry)
+        prev = entry_target;
+      // From a pending key made before the state machine was replaced.
+      else if (prev >= states.length)
+        return null;
+      int next;
+      int table = _ascii_index[prev];
+      if (c < 128 && table != 0)
+      {
+        next = _ascii[(table - 1) * 128 + c];
+        if (next == 0)
+          return null;
+      }
+      else
+      {
+        int t = Arrays.binarySearch(states, prev + 1, prev + edges[prev], c);
+        if (t < 0)
+          return null;
+        next = edges[t];
+      }
+      KeyValue r = _results[next];
+      if (r == null)
+      {
+        r = result(next, c);
+        _results[next] = r;
+      }
+      return r;
+    }
+
+    /** [c] is the character that leads to state [next]. */
+    KeyValue result(int next, char c)
+    {
+      int next_header = states[next];
+      if (next_header == 0) // Enter a new intermediate state.
+        return KeyValue.makeComposePending(String.valueOf(c), next, 0);
+      else if (next_header == 0xFFFF) // String final state
+      {
+        int next_length = edges[next];
+        if (next_length > 1 && states[next + 1] == 0) // Literal string
+          return KeyValue.makeStringKey(
+              new String(states, next + 2, next_length - 2));
+        return KeyValue.getKeyByName(
+            new String(states, next + 1, next_length - 1));
+      }
+      else // Character final state.
+        return KeyValue.makeCharKey((char)next_header);
+    }
+  }
 }
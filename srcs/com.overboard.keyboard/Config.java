@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.Map;
 import juloo.cdict.Cdict;
 import com.overboard.keyboard.dict.Dictionaries;
+import com.overboard.keyboard.dict.NextWords;
+import com.overboard.keyboard.dict.UserDictionary;
 import com.overboard.keyboard.prefs.CustomExtraKeysPreference;
 import com.overboard.keyboard.prefs.ExtraKeysPreference;
 import com.overboard.keyboard.prefs.LayoutsPreference;
@@ -75,6 +77,8 @@ public final class Config
   public boolean clipboard_history_enabled;
   public int clipboard_history_duration;
   public boolean space_bar_auto_complete;
+  // Log drawing measurements, see [FrameStats].
+  public boolean frame_stats;
   // Overlay features
   public boolean labelOutline;
   public boolean labelShadow;
@@ -94,6 +98,8 @@ public final class Config
   public Map<KeyValue, KeyboardData.PreferredPos> extra_keys_param;
   public Map<KeyValue, KeyboardData.PreferredPos> extra_keys_custom;
   public Cdict current_dictionary = null; // Might be 'null'.
+  public UserDictionary user_dictionary = null; // Might be 'null'.
+  public NextWords next_words = null; // Might be 'null'.
   public IKeyEventHandler handler;
   public boolean orientation_landscape = false;
   public boolean foldable_unfolded = false;
@@ -203,6 +209,7 @@ public final class Config
     clipboard_history_enabled = _prefs.getBoolean("clipboard_history_enabled", false);
     clipboard_history_duration = Integer.parseInt(_prefs.getString("clipboard_history_duration", "5"));
     space_bar_auto_complete = _prefs.getBoolean("space_bar_auto_complete", false);
+    frame_stats = _prefs.getBoolean("frame_stats", false);
     // Overlay features
     labelOutline = _prefs.getBoolean("label_outline", true);
     labelShadow = _prefs.getBoolean("label_shadow", false);
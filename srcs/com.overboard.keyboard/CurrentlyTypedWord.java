@@ -62,7 +62,7 @@ public final class CurrentlyTypedWord
     if (!_enabled)
       return;
     _has_selection = false;
-    type_chars(s);
+    type_chars(s, true);
     callback();
   }
 
@@ -90,8 +90,10 @@ public final class CurrentlyTypedWord
     _callback.currently_typed_word(_w.toString());
   }
 
-  /** Estimate the currently typed word after [chars] has been typed. */
-  void type_chars(String s)
+  /** Estimate the currently typed word after [chars] has been typed. If
+      [typed] is true, the words ended by the typed characters are passed to
+      [Callback.word_finished]. */
+  void type_chars(String s, boolean typed)
   {
     int len = s.length();
     for (int i = 0; i < len;)
@@ -100,7 +102,11 @@ public final class CurrentlyTypedWord
       if (Character.isLetter(c))
         _w.appendCodePoint(c);
       else
+      {
+        if (typed && _w.length() > 0)
+          _callback.word_finished(_w.toString(), c);
         _w.setLength(0);
+      }
       _cursor++;
       i += Character.charCount(c);
     }
@@ -123,7 +129,7 @@ public final class CurrentlyTypedWord
     if (text_before_cursor == null)
       return;
     int saved_cursor = _cursor;
-    type_chars(text_before_cursor.toString());
+    type_chars(text_before_cursor.toString(), false);
     _cursor = saved_cursor;
     callback();
   }
@@ -148,5 +154,8 @@ public final class CurrentlyTypedWord
   public static interface Callback
   {
     public void currently_typed_word(String word);
+
+    /** The user typed [separator], which ended [word]. */
+    public void word_finished(String word, int separator);
   }
 }
@@ -38,6 +38,9 @@ public final class EditorConfig
   /** Suggestions. */
   // Doesn't override [_config.suggestions_enabled].
   public boolean should_show_candidates_view;
+  /** Words typed in the editor must not be learned, for example in incognito
+      mode. */
+  public boolean no_personalized_learning = false;
 
   public EditorConfig() {}
 
@@ -97,6 +100,8 @@ public final class EditorConfig
     initial_sel_end = info.initialSelEnd;
     /* Suggestions */
     should_show_candidates_view = CandidatesView.should_show(info);
+    no_personalized_learning =
+      (options & EditorInfo.IME_FLAG_NO_PERSONALIZED_LEARNING) != 0;
   }
 
   String actionLabel_of_imeAction(int action, Resources res)
@@ -0,0 +1,192 @@
+package com.overboard.keyboard;
+
+import android.os.Build.VERSION;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/** Measurements of the keyboard view, enabled by the "frame_stats" option.
+    Records the duration of [onDraw] and [onMeasure], the latency between a
+    touch and the next frame and, on API 24+, the frames that missed their
+    deadline. A summary is written to the
+    log every [REPORT_EVERY] frames and the counters are reset. */
+final class FrameStats
+{
+  static final int REPORT_EVERY = 100;
+
+  /** Upper bounds of the buckets of the draw durations, in microseconds. The
+      last bucket is for longer draws. */
+  static final int[] DRAW_BUCKETS_US = new int[]{
+    500, 1000, 2000, 4000, 8000, 16000, 33000
+  };
+
+  final int[] _draw_hist = new int[DRAW_BUCKETS_US.length + 1];
+  int _frames = 0;
+  long _draw_total_ns = 0;
+  long _draw_max_ns = 0;
+  long _measure_total_ns = 0;
+  int _measures = 0;
+  /** Time of the first touch not yet followed by a frame, 0 if none. */
+  long _touch_ns = 0;
+  long _touch_latency_total_ns = 0;
+  long _touch_latency_max_ns = 0;
+  int _touches = 0;
+  /** Updated from the [FrameMetrics] listener, on the main thread. */
+  int _metrics_frames = 0;
+  int _janky_frames = 0;
+
+  long _draw_start_ns = 0;
+
+  Window _window = null;
+  Object _metrics_listener = null;
+
+  /** Budget of a frame when the refresh rate is not known. */
+  static final long DEFAULT_FRAME_DEADLINE_NS = 16_666_667;
+
+  public FrameStats() {}
+
+  /** Stop measuring. */
+  public void stop()
+  {
+    detach();
+  }
+
+  /** Count the frames of [window] that missed their deadline, API 24+. The
+      deadline is given by the frame metrics on API 31+ and is otherwise
+      computed from the refresh rate of [display], which might be [null]. */
+  public void attach(Window window, Display display)
+  {
+    if (VERSION.SDK_INT < 24 || window == _window)
+      return;
+    detach();
+    final long deadline_ns = frame_deadline_ns(display);
+    Window.OnFrameMetricsAvailableListener l = (w, metrics, dropped) -> {
+      _metrics_frames += 1 + dropped;
+      _janky_frames += dropped;
+      long deadline = (VERSION.SDK_INT >= 31) ?
+        metrics.getMetric(FrameMetrics.DEADLINE) : deadline_ns;
+      if (metrics.getMetric(FrameMetrics.TOTAL_DURATION) > deadline)
+        _janky_frames++;
+    };
+    window.addOnFrameMetricsAvailableListener(l,
+        new Handler(Looper.getMainLooper()));
+    _window = window;
+    _metrics_listener = l;
+  }
+
+  void detach()
+  {
+    if (VERSION.SDK_INT >= 24 && _window != null)
+    {
+      try
+      {
+        _window.removeOnFrameMetricsAvailableListener(
+            (Window.OnFrameMetricsAvailableListener)_metrics_listener);
+      }
+      catch (IllegalArgumentException e) {} // Already removed
+    }
+    _window = null;
+    _metrics_listener = null;
+  }
+
+  public void begin_draw()
+  {
+    _draw_start_ns = System.nanoTime();
+  }
+
+  public void end_draw()
+  {
+    long now = System.nanoTime();
+    long d = now - _draw_start_ns;
+    _draw_total_ns += d;
+    _draw_max_ns = Math.max(_draw_max_ns, d);
+    _draw_hist[bucket(d / 1000)]++;
+    if (_touch_ns != 0)
+    {
+      long l = now - _touch_ns;
+      _touch_latency_total_ns += l;
+      _touch_latency_max_ns = Math.max(_touch_latency_max_ns, l);
+      _touches++;
+      _touch_ns = 0;
+    }
+    if (++_frames >= REPORT_EVERY)
+      report();
+  }
+
+  public void measured(long duration_ns)
+  {
+    _measure_total_ns += duration_ns;
+    _measures++;
+  }
+
+  /** A touch event is being handled. Only the first touch before a frame is
+      taken into account. */
+  public void touched()
+  {
+    if (_touch_ns == 0)
+      _touch_ns = System.nanoTime();
+  }
+
+  static long frame_deadline_ns(Display display)
+  {
+    float rate = (display == null) ? 0.f : display.getRefreshRate();
+    if (rate < 1.f)
+      return DEFAULT_FRAME_DEADLINE_NS;
+    return (long)(1_000_000_000 / rate);
+  }
+
+  static int bucket(long us)
+  {
+    int i = 0;
+    while (i < DRAW_BUCKETS_US.length && us >= DRAW_BUCKETS_US[i])
+      i++;
+    return i;
+  }
+
+  void report()
+  {
+    StringBuilder b = new StringBuilder("Frame stats: ");
+    b.append(_frames).append(" frames, draw avg ")
+      .append(_draw_total_ns / _frames / 1000).append("us max ")
+      .append(_draw_max_ns / 1000).append("us, histogram");
+    for (int i = 0; i < _draw_hist.length; i++)
+    {
+      b.append((i == 0) ? " <" : " ");
+      if (i < DRAW_BUCKETS_US.length)
+        b.append(DRAW_BUCKETS_US[i]).append("us:");
+      else
+        b.append("more:");
+      b.append(_draw_hist[i]);
+    }
+    if (_measures > 0)
+      b.append(", measure avg ").append(_measure_total_ns / _measures / 1000)
+        .append("us");
+    if (_touches > 0)
+      b.append(", touch to draw avg ")
+        .append(_touch_latency_total_ns / _touches / 1000).append("us max ")
+        .append(_touch_latency_max_ns / 1000).append("us");
+    if (_metrics_frames > 0)
+      b.append(", janky ").append(_janky_frames).append("/")
+        .append(_metrics_frames);
+    Logs.info(b.toString());
+    reset();
+  }
+
+  void reset()
+  {
+    for (int i = 0; i < _draw_hist.length; i++)
+      _draw_hist[i] = 0;
+    _frames = 0;
+    _draw_total_ns = 0;
+    _draw_max_ns = 0;
+    _measure_total_ns = 0;
+    _measures = 0;
+    _touch_latency_total_ns = 0;
+    _touch_latency_max_ns = 0;
+    _touches = 0;
+    _metrics_frames = 0;
+    _janky_frames = 0;
+  }
+}
@@ -0,0 +1,36 @@
+package com.overboard.keyboard;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/** Executor shared by the I/O done in the background: loading dictionaries
+    and compose sequences and saving the learned words. Tasks run one after
+    the other on a single daemon thread, which is stopped when idle. */
+public final class IoExecutor
+{
+  public static Executor get() { return _executor; }
+
+  /** Private */
+
+  static final long KEEP_ALIVE_S = 10;
+
+  static final ThreadPoolExecutor _executor;
+
+  static
+  {
+    _executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_S, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+          public Thread newThread(Runnable r)
+          {
+            Thread t = new Thread(r, "overboard-io");
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    _executor.allowCoreThreadTimeOut(true);
+  }
+}
@@ -32,6 +32,10 @@ public final class KeyEventHandler
   boolean _move_cursor_force_fallback = false;
   /** Whether the space bar automatically enters the best suggestion. */
   boolean _space_bar_auto_complete = false;
+  /** Whether the words typed in the current editor can be learned. Not in
+      editors where suggestions are not shown, like password fields, or that
+      request no personalized learning. */
+  boolean _learn_words = false;
 
   public KeyEventHandler(IReceiver recv, Config config)
   {
@@ -40,7 +44,7 @@ public final class KeyEventHandler
     _autocap = new Autocapitalisation(handler,
         this.new Autocapitalisation_callback());
     _mods = Pointers.Modifiers.EMPTY;
-    _suggestions = new Suggestions(recv, config);
+    _suggestions = new Suggestions(handler, recv, config);
     _typedword = new CurrentlyTypedWord(handler, this);
   }
 
@@ -48,6 +52,11 @@ public final class KeyEventHandler
   public void started(Config conf)
   {
     InputConnection ic = _recv.getCurrentInputConnection();
+    // Must be set before [_typedword] reports the word around the cursor.
+    _learn_words = conf.suggestions_enabled
+      && conf.editor_config.should_show_candidates_view
+      && !conf.editor_config.no_personalized_learning;
+    _suggestions.clear_prev_words();
     _autocap.started(conf, ic);
     _typedword.started(conf, ic);
     _move_cursor_force_fallback =
@@ -128,6 +137,8 @@ public final class KeyEventHandler
   public void suggestion_entered(String text)
   {
     String old = _typedword.get();
+    if (_learn_words)
+      _suggestions.suggestion_entered(text);
     replace_text_before_cursor(old.length(), text + " ");
     last_replaced_word = old;
     last_replacement_word_len = text.length() + 1;
@@ -145,6 +156,13 @@ public final class KeyEventHandler
     _suggestions.currently_typed_word(word);
   }
 
+  @Override
+  public void word_finished(String word, int separator)
+  {
+    if (_learn_words)
+      _suggestions.word_finished(word, separator);
+  }
+
   /** Update [_mods] to be consistent with the [mods], sending key events if
       needed. */
   void update_meta_state(Pointers.Modifiers mods)
@@ -571,10 +589,12 @@ public final class KeyEventHandler
 
   void handle_space_bar()
   {
-    if (_space_bar_auto_complete && _suggestions.best_suggestion != null
-        && !_typedword.is_selection_not_empty())
+    String best = (_space_bar_auto_complete
+        && !_typedword.is_selection_not_empty()) ?
+      _suggestions.best_suggestion() : null;
+    if (best != null)
     {
-      suggestion_entered(_suggestions.best_suggestion);
+      suggestion_entered(best);
     }
     else
     {
@@ -604,6 +624,7 @@ public final class KeyEventHandler
   public void destroy()
   {
     _autocap.clear();
+    _suggestions.destroy();
   }
 
   public static interface IReceiver extends Suggestions.Callback
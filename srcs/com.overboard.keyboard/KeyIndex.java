@@ -0,0 +1,157 @@
+package com.overboard.keyboard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Find the key at a position on the keyboard in constant time. Built from
+    the layout and the size of the keys, must be built again when one of them
+    change. Positions are in pixels, in the coordinates of the view. */
+final class KeyIndex
+{
+  /** Boundaries of the rows. The empty space above a row belongs to it. */
+  final Intervals _rows;
+  /** For each row, the keys with a non-zero width and the boundaries between
+      them that split the gaps in the middle. */
+  final KeyboardData.Key[][] _keys;
+  final Intervals[] _nearest;
+  /** Horizontal extent of the keyboard. */
+  final float _left;
+  final float _right;
+
+  public KeyIndex(List<KeyboardData.Row> rows, float keys_width,
+      float margin_top, float row_height, float margin_left, float key_width)
+  {
+    int n_rows = rows.size();
+    float[] row_bounds = new float[n_rows + 1];
+    _keys = new KeyboardData.Key[n_rows][];
+    _nearest = new Intervals[n_rows];
+    float y = margin_top;
+    row_bounds[0] = y;
+    for (int r = 0; r < n_rows; r++)
+    {
+      KeyboardData.Row row = rows.get(r);
+      y += (row.shift + row.height) * row_height;
+      row_bounds[r + 1] = y;
+      index_row(r, row, margin_left, key_width);
+    }
+    _rows = new Intervals(row_bounds);
+    _left = margin_left;
+    _right = margin_left + keys_width * key_width;
+  }
+
+  /** The key at the given position. Positions in gaps between keys,
+      including the empty space at the end of shorter rows, go to the nearest
+      key. Returns [null] only outside of the keyboard. */
+  public KeyboardData.Key nearest_key(float x, float y)
+  {
+    if (!_rows.contains(y) || x < _left || x >= _right)
+      return null;
+    int r = _rows.find(y);
+    int k = _nearest[r].find(x);
+    return (k < 0) ? null : _keys[r][k];
+  }
+
+  void index_row(int r, KeyboardData.Row row, float margin_left,
+      float key_width)
+  {
+    List<KeyboardData.Key> keys = new ArrayList<KeyboardData.Key>();
+    List<Float> lefts = new ArrayList<Float>();
+    List<Float> rights = new ArrayList<Float>();
+    float x = margin_left;
+    for (KeyboardData.Key key : row.keys)
+    {
+      float left = x + key.shift * key_width;
+      float right = left + key.width * key_width;
+      // Keys with a zero width can't be touched.
+      if (right > left)
+      {
+        keys.add(key);
+        lefts.add(left);
+        rights.add(right);
+      }
+      x = right;
+    }
+    int n = keys.size();
+    _keys[r] = keys.toArray(new KeyboardData.Key[n]);
+    float[] bounds = new float[n + 1];
+    if (n > 0)
+    {
+      bounds[0] = lefts.get(0);
+      bounds[n] = rights.get(n - 1);
+      for (int i = 1; i < n; i++)
+        bounds[i] = (rights.get(i - 1) + lefts.get(i)) / 2.f;
+    }
+    _nearest[r] = new Intervals(bounds);
+  }
+
+  /** Consecutive intervals [[bounds[i], bounds[i+1]]). The range is divided
+      into cells no larger than the smallest interval, each cell remembers
+      the first interval it overlaps. A lookup then checks at most a few
+      intervals. */
+  static final class Intervals
+  {
+    final float[] _bounds;
+    final int[] _cells;
+    final float _cell_size;
+
+    /** Limits the number of cells when an interval is very small. */
+    static final int MAX_CELLS_PER_INTERVAL = 4;
+
+    public Intervals(float[] bounds)
+    {
+      _bounds = bounds;
+      int n = bounds.length - 1;
+      if (n <= 0)
+      {
+        _cells = new int[0];
+        _cell_size = 1.f;
+        return;
+      }
+      float total = bounds[n] - bounds[0];
+      float min = total;
+      for (int i = 0; i < n; i++)
+      {
+        float d = bounds[i + 1] - bounds[i];
+        if (d > 0.f && d < min)
+          min = d;
+      }
+      _cell_size = Math.max(min, total / (n * MAX_CELLS_PER_INTERVAL));
+      int n_cells = (total > 0.f) ? (int)Math.ceil(total / _cell_size) : 0;
+      _cells = new int[n_cells];
+      int i = 0;
+      for (int c = 0; c < n_cells; c++)
+      {
+        float start = bounds[0] + c * _cell_size;
+        while (i < n - 1 && start >= bounds[i + 1])
+          i++;
+        _cells[c] = i;
+      }
+    }
+
+    public boolean contains(float v)
+    {
+      return _bounds.length > 1 && v >= _bounds[0]
+        && v < _bounds[_bounds.length - 1];
+    }
+
+    /** Index of the interval containing [v], or of the first or last
+        interval if [v] is outside. Returns [-1] if there are no intervals. */
+    public int find(float v)
+    {
+      int n = _bounds.length - 1;
+      if (n <= 0)
+        return -1;
+      int c = (int)Math.floor((v - _bounds[0]) / _cell_size);
+      int i;
+      if (c < 0)
+        return 0;
+      else if (c >= _cells.length)
+        i = _cells.length == 0 ? 0 : _cells[_cells.length - 1];
+      else
+        i = _cells[c];
+      while (i < n - 1 && v >= _bounds[i + 1])
+        i++;
+      return i;
+    }
+  }
+}
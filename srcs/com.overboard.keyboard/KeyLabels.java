@@ -0,0 +1,82 @@
+package com.overboard.keyboard;
+
+import android.graphics.Paint;
+
+/** Labels of every key resolved for the current modifiers: the modified
+    value, its text, size, position and color. Labels are computed when a key
+    is first drawn and are kept until the modifiers, the theme or the layout
+    change, see [Keyboard2View.labelsChanged]. */
+final class KeyLabels
+{
+  /** Indexed in the order of the keys in the layout. [null] if not computed
+      yet. */
+  Label[][] _labels = new Label[0][];
+
+  /** Called at the beginning of every frame. [labels_changed] drops every
+      label. */
+  public void update(int key_count, boolean labels_changed)
+  {
+    if (_labels.length != key_count)
+      _labels = new Label[key_count][];
+    else if (labels_changed)
+      invalidate();
+  }
+
+  public void invalidate()
+  {
+    for (int i = 0; i < _labels.length; i++)
+      _labels[i] = null;
+  }
+
+  /** The labels of the key [i] or [null] if they must be computed and
+      [set]. */
+  public Label[] get(int i)
+  {
+    return _labels[i];
+  }
+
+  public void set(int i, Label[] labels)
+  {
+    _labels[i] = labels;
+  }
+
+  /** A label ready to be drawn. */
+  public static final class Label
+  {
+    /** The modified value. */
+    public final KeyValue kv;
+    /** The label is the first [text_len] characters of [text]. */
+    public final String text;
+    public final int text_len;
+    /** Main label when [index] is 0, sublabel otherwise. */
+    public final int index;
+    public final float text_size;
+    public final boolean special_font;
+    public final Paint.Align align;
+    /** Position relative to the top-left corner of the key. */
+    public final float x;
+    public final float y;
+    /** Color when the key is not pressed. */
+    public final int color;
+    /** Rendering of the label when the key is not pressed and when it is
+        pressed, set when first drawn and dropped once evicted from the cache.
+        Only used when labels have an outline or a shadow. */
+    public Theme.Computed.Halo halo = null;
+    public Theme.Computed.Halo halo_pressed = null;
+
+    public Label(KeyValue kv_, int text_len_, int index_, float text_size_,
+        Paint.Align align_, float x_, float y_, int color_)
+    {
+      kv = kv_;
+      text = kv_.getString();
+      text_len = text_len_;
+      index = index_;
+      text_size = text_size_;
+      special_font = kv_.hasFlagsAny(KeyValue.FLAG_KEY_FONT);
+      align = align_;
+      x = x_;
+      y = y_;
+      color = color_;
+    }
+  }
+}
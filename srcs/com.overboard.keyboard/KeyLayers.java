@@ -0,0 +1,80 @@
+package com.overboard.keyboard;
+
+import android.graphics.Canvas;
+import android.graphics.RenderNode;
+
+/** Retained display list of each key. A key is recorded again only when its
+    appearance changed, the other keys are drawn from their previous
+    recording. Requires API 29 and a hardware accelerated canvas. */
+final class KeyLayers
+{
+  /** Indexed in the order of the keys in the layout. */
+  RenderNode[] _nodes = new RenderNode[0];
+  /** State of each key when it was recorded, see [Keyboard2View.key_state].
+      [INVALID] if it must be recorded again. */
+  int[] _states = new int[0];
+
+  static final int INVALID = Integer.MIN_VALUE;
+
+  /** Called at the beginning of every frame. All the keys are recorded
+      again when [labels_changed], see [Keyboard2View.labelsChanged]. */
+  public void update(int key_count, boolean labels_changed)
+  {
+    if (_nodes.length != key_count)
+    {
+      _nodes = new RenderNode[key_count];
+      _states = new int[key_count];
+      for (int i = 0; i < key_count; i++)
+        _nodes[i] = new RenderNode("key");
+      invalidate();
+    }
+    else if (labels_changed)
+      invalidate();
+  }
+
+  /** Record every key again at the next frame. */
+  public void invalidate()
+  {
+    for (int i = 0; i < _states.length; i++)
+      _states[i] = INVALID;
+  }
+
+  /** Return a canvas into which the key [i] must be drawn, using the same
+      coordinates as the view, or [null] if the previous recording is still
+      valid. [end] must be called after drawing. */
+  public Canvas begin(int i, int state, float x, float y, float keyW,
+      float keyH)
+  {
+    if (_states[i] == state)
+      return null;
+    _states[i] = state;
+    RenderNode node = _nodes[i];
+    int left = (int)x;
+    int top = (int)y;
+    node.setPosition(left, top, (int)Math.ceil(x + keyW),
+        (int)Math.ceil(y + keyH));
+    // Shadows and outlines of labels can go past the key.
+    node.setClipToBounds(false);
+    Canvas c = node.beginRecording();
+    c.translate(-left, -top);
+    return c;
+  }
+
+  public void end(int i)
+  {
+    _nodes[i].endRecording();
+  }
+
+  public void draw(Canvas canvas, int i)
+  {
+    canvas.drawRenderNode(_nodes[i]);
+  }
+
+  /** Free the recordings, for example when the view is detached. */
+  public void clear()
+  {
+    for (RenderNode n : _nodes)
+      n.discardDisplayList();
+    invalidate();
+  }
+}
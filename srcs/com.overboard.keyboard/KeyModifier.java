@@ -12,13 +12,48 @@ public final class KeyModifier
   public static void set_modmap(Modmap mm)
   {
     _modmap = mm;
+    clear_memo();
   }
 
-  /** Modify a key according to modifiers. */
+  /** Modify a key according to modifiers. The result is memoized, see
+      [_memo]. */
   public static KeyValue modify(KeyValue k, Pointers.Modifiers mods)
   {
     if (k == null)
       return null;
+    if (mods.size() == 0)
+      return modify_uncached(k, mods);
+    HashMap<KeyValue, KeyValue> m = memo_of_mods(mods);
+    KeyValue r = m.get(k);
+    if (r == null)
+    {
+      if (_memo_size >= MEMO_MAX_SIZE)
+      {
+        clear_memo();
+        m = memo_of_mods(mods);
+      }
+      r = modify_uncached(k, mods);
+      m.put(k, (r == null) ? MEMO_NULL : r);
+      _memo_size++;
+    }
+    return (r == MEMO_NULL) ? null : r;
+  }
+
+  /** Like [modify] but do not apply user modmaps. Used when evaluating macros
+      to avoid loops. */
+  public static KeyValue modify_no_modmap(KeyValue k, Pointers.Modifiers mods)
+  {
+    if (k == null)
+      return null;
+    Modmap saved = _modmap;
+    _modmap = null;
+    KeyValue r = modify_uncached(k, mods);
+    _modmap = saved;
+    return r;
+  }
+
+  private static KeyValue modify_uncached(KeyValue k, Pointers.Modifiers mods)
+  {
     int n_mods = mods.size();
     KeyValue r = k;
     for (int i = 0; i < n_mods; i++)
@@ -29,15 +64,43 @@ public final class KeyModifier
     return r;
   }
 
-  /** Like [modify] but do not apply user modmaps. Used when evaluating macros
-      to avoid loops. */
-  public static KeyValue modify_no_modmap(KeyValue k, Pointers.Modifiers mods)
+  /** Results of [modify] for each modifier state. The same keys are modified
+      by the same modifiers on every draw and every key press. Only depends on
+      [_modmap] and the compose sequences and is cleared when they change, see
+      [ComposeKey.set_compiled]. Cleared when it reaches [MEMO_MAX_SIZE]
+      entries to bound its size. Only accessed from the main thread. */
+  private static final HashMap<Pointers.Modifiers, HashMap<KeyValue, KeyValue>>
+    _memo = new HashMap<Pointers.Modifiers, HashMap<KeyValue, KeyValue>>();
+  private static int _memo_size = 0;
+  /** Modifiers are usually the same between consecutive calls. */
+  private static Pointers.Modifiers _memo_last_mods = null;
+  private static HashMap<KeyValue, KeyValue> _memo_last = null;
+
+  static final int MEMO_MAX_SIZE = 2048;
+  /** Stored for keys that [modify] turns into [null]. */
+  private static final KeyValue MEMO_NULL = KeyValue.makeStringKey("");
+
+  private static HashMap<KeyValue, KeyValue> memo_of_mods(Pointers.Modifiers mods)
   {
-    Modmap saved = _modmap;
-    _modmap = null;
-    KeyValue r = modify(k, mods);
-    _modmap = saved;
-    return r;
+    if (mods == _memo_last_mods)
+      return _memo_last;
+    HashMap<KeyValue, KeyValue> m = _memo.get(mods);
+    if (m == null)
+    {
+      m = new HashMap<KeyValue, KeyValue>();
+      _memo.put(mods, m);
+    }
+    _memo_last_mods = mods;
+    _memo_last = m;
+    return m;
+  }
+
+  static void clear_memo()
+  {
+    _memo.clear();
+    _memo_size = 0;
+    _memo_last_mods = null;
+    _memo_last = null;
   }
 
   public static KeyValue modify(KeyValue k, KeyValue mod)
@@ -60,6 +123,15 @@ public final class KeyModifier
 
   public static KeyValue modify(KeyValue k, KeyValue.Modifier mod)
   {
+    // Most modifiers turn a character into another character, which is found
+    // with a direct lookup. The modmap takes priority for shift and fn.
+    if (k.getKind() == KeyValue.Kind.Char && (_modmap == null
+          || (mod != KeyValue.Modifier.SHIFT && mod != KeyValue.Modifier.FN)))
+    {
+      char c = ModifierTables.get(mod, k.getChar());
+      if (c != 0)
+        return KeyValue.makeCharKey(c);
+    }
     switch (mod)
     {
       case CTRL: return apply_ctrl(k);
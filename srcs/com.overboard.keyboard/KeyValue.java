@@ -1,6 +1,7 @@
 package com.overboard.keyboard;
 
 import android.view.KeyEvent;
+import java.util.Arrays;
 import java.util.HashMap;
 
 public final class KeyValue implements Comparable<KeyValue>
@@ -150,6 +151,26 @@ public final class KeyValue implements Comparable<KeyValue>
       The meaning of the value depends on the kind. */
   private final int _code;
 
+  /** Char keys whose symbol is the character itself, shared to make the keys
+      typed most often without allocating. Direct-mapped by character, an
+      entry is replaced when another character uses its slot. Reads and writes
+      are not synchronized, the keys are immutable and a lost update only
+      costs an allocation. */
+  private static final int CHAR_KEYS_SIZE = 1024; // Power of 2
+  private static final KeyValue[] _char_keys = new KeyValue[CHAR_KEYS_SIZE];
+
+  private static KeyValue plainCharKey(char c, int flags)
+  {
+    int code = (Kind.Char.ordinal() << KIND_OFFSET) | (flags & FLAGS_BITS) | c;
+    int i = c & (CHAR_KEYS_SIZE - 1);
+    KeyValue k = _char_keys[i];
+    if (k != null && k._code == code)
+      return k;
+    k = new KeyValue(String.valueOf(c), Kind.Char, c, flags);
+    _char_keys[i] = k;
+    return k;
+  }
+
   public Kind getKind()
   {
     return Kind.values()[(_code & KIND_BITS) >>> KIND_OFFSET];
@@ -242,8 +263,7 @@ public final class KeyValue implements Comparable<KeyValue>
   /* Update the char and the symbol. */
   public KeyValue withChar(char c)
   {
-    return new KeyValue(String.valueOf(c), Kind.Char, c,
-        getFlags() & ~(FLAG_KEY_FONT | FLAG_SMALLER_FONT));
+    return plainCharKey(c, getFlags() & ~(FLAG_KEY_FONT | FLAG_SMALLER_FONT));
   }
 
   public KeyValue withKeyevent(int code)
@@ -304,6 +324,8 @@ public final class KeyValue implements Comparable<KeyValue>
   /** Type-safe alternative to [equals]. */
   public boolean sameKey(KeyValue snd)
   {
+    if (snd == this)
+      return true;
     if (snd == null)
       return false;
     return _code == snd._code && _payload.compareTo(snd._payload) == 0;
@@ -446,7 +468,7 @@ public final class KeyValue implements Comparable<KeyValue>
   public static KeyValue makeCharKey(char c, String symbol, int flags)
   {
     if (symbol == null)
-      symbol = String.valueOf(c);
+      return plainCharKey(c, flags);
     return new KeyValue(symbol, Kind.Char, c, flags);
   }
 
@@ -496,7 +518,7 @@ public final class KeyValue implements Comparable<KeyValue>
   public static KeyValue makeStringKey(String str, int flags)
   {
     if (str.length() == 1)
-      return new KeyValue(str, Kind.Char, str.charAt(0), flags);
+      return plainCharKey(str.charAt(0), flags);
     else
       return new KeyValue(str, Kind.String, 0, flags | FLAG_SMALLER_FONT);
   }
@@ -917,5 +939,12 @@ public final class KeyValue implements Comparable<KeyValue>
       }
       return _symbol.compareTo(snd._symbol);
     }
+
+    /** Consistent with [compareTo], used by [KeyValue.hashCode]. */
+    @Override
+    public int hashCode()
+    {
+      return Arrays.hashCode(keys) * 31 + _symbol.hashCode();
+    }
   };
 }
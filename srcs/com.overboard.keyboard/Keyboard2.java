@@ -26,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import com.overboard.keyboard.dict.Dictionaries;
+import com.overboard.keyboard.dict.NextWords;
+import com.overboard.keyboard.dict.UserDictionary;
 import com.overboard.keyboard.dict.DictionariesActivity;
 import com.overboard.keyboard.prefs.LayoutsPreference;
 import com.overboard.keyboard.suggestions.CandidatesView;
@@ -46,6 +48,9 @@ public class Keyboard2 extends InputMethodService
   /** Installed and current locales. */
   private DeviceLocales _device_locales;
   private Dictionaries _dictionaries;
+  /** Dictionary of the current locale. [_config.current_dictionary] is set once
+      it is loaded. Might be [null]. */
+  private String _current_dictionary_name = null;
   private ViewGroup _emojiPane = null;
   private ViewGroup _clipboard_pane = null;
   private Handler _handler;
@@ -137,6 +142,9 @@ public class Keyboard2 extends InputMethodService
     Config.initGlobalConfig(prefs, getResources(),
         _foldStateTracker.isUnfolded(), _dictionaries);
     _config = Config.globalConfig();
+    _config.user_dictionary = UserDictionary.instance(this);
+    _config.next_words = NextWords.instance(this);
+    UserComposeSequences.load_async(this);
     _keyeventhandler = new KeyEventHandler(this.new Receiver(), _config);
     _config.handler = _keyeventhandler;
     prefs.registerOnSharedPreferenceChangeListener(this);
@@ -165,6 +173,13 @@ public class Keyboard2 extends InputMethodService
     catch (Exception e) { Logs.exn("onDestroy: FoldStateTracker", e); }
   }
 
+  @Override
+  public void onTrimMemory(int level)
+  {
+    super.onTrimMemory(level);
+    _dictionaries.trim_memory(level);
+  }
+
   private void create_keyboard_view()
   {
     _container_view = (ViewGroup)inflate_view(R.layout.keyboard);
@@ -192,20 +207,48 @@ public class Keyboard2 extends InputMethodService
     if (default_layout == null)
       default_layout = loadLayout(R.xml.latn_qwerty_us);
     _localeTextLayout = default_layout;
+    preload_dictionaries();
   }
 
+  /** Start loading the dictionaries of every enabled locales so that switching
+      locale doesn't block. */
+  private void preload_dictionaries()
+  {
+    List<String> dict_names = new ArrayList<String>();
+    for (DeviceLocales.Loc l : _device_locales.installed)
+      if (l.dictionary != null)
+        dict_names.add(l.dictionary);
+    _dictionaries.preload(dict_names);
+  }
+
+  /** The dictionary is loaded in the background if needed. Suggestions are
+      disabled until then. */
   private void refresh_current_dictionary()
   {
+    String current = (_device_locales.default_ == null) ? null
+      : _device_locales.default_.dictionary;
+    _current_dictionary_name = current;
     _config.current_dictionary = null;
-    if (_device_locales.default_ == null)
-      return;
-    String current = _device_locales.default_.dictionary;
     if (current == null)
       return;
-    Cdict[] dicts = _dictionaries.load(current);
-    if (dicts == null)
+    if (_dictionaries.is_loaded(current))
+    {
+      set_current_dictionary(_dictionaries.load(current));
       return;
-    _config.current_dictionary = Dictionaries.find_by_name(dicts, "main");
+    }
+    _dictionaries.load_async(current, _handler, (dict_name, dicts) -> {
+      // The locale changed while the dictionary was loading.
+      if (!dict_name.equals(_current_dictionary_name))
+        return;
+      set_current_dictionary(dicts);
+      refresh_candidates_view();
+    });
+  }
+
+  private void set_current_dictionary(Cdict[] dicts)
+  {
+    _config.current_dictionary =
+      (dicts == null) ? null : Dictionaries.find_by_name(dicts, "main");
   }
 
   private void refresh_candidates_view()
@@ -462,6 +505,7 @@ public class Keyboard2 extends InputMethodService
   public void onCurrentInputMethodSubtypeChanged(InputMethodSubtype subtype)
   {
     refreshSubtypeImm();
+    refresh_current_dictionary();
     refresh_candidates_view();
     _keyboardView.setKeyboard(current_layout());
   }
@@ -504,6 +548,20 @@ public class Keyboard2 extends InputMethodService
       _overlayManager.hide();
   }
 
+  @Override
+  public void onFinishInput()
+  {
+    super.onFinishInput();
+    // Learned words are written to storage once the user is done typing.
+    if (_config != null)
+    {
+      if (_config.user_dictionary != null)
+        _config.user_dictionary.flush();
+      if (_config.next_words != null)
+        _config.next_words.flush();
+    }
+  }
+
   @Override
   public void onWindowHidden()
   {
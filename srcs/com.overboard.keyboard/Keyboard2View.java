@@ -6,6 +6,7 @@ import android.graphics.Canvas;
 import android.graphics.Insets;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
@@ -28,13 +29,20 @@ import android.view.WindowManager;
 import android.view.WindowMetrics;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 public class Keyboard2View extends View
   implements View.OnTouchListener, Pointers.IPointerEventHandler
 {
   private KeyboardData _keyboard;
 
+  /** Number of keys in [_keyboard]. */
+  private int _key_count = 0;
+
+  /** Built from [_keyboard] and the size of the keys in [onMeasure], at the
+      same time as [_tc]. [null] when the layout changed until it is measured
+      again. */
+  private KeyIndex _key_index = null;
+
   /** The key holding the shift key is used to set shift state from
       autocapitalisation. */
   private KeyboardData.Key _shift_key;
@@ -65,6 +73,24 @@ public class Keyboard2View extends View
 
   private static RectF _tmpRect = new RectF();
 
+  /** Retained drawing of the keys, used when the canvas is hardware
+      accelerated. */
+  private final KeyLayers _key_layers = new KeyLayers();
+
+  /** Labels of the keys resolved for the current modifiers. */
+  private final KeyLabels _key_labels = new KeyLabels();
+
+  /** State of the keys, theme, layout and modifiers when they were last
+      drawn, see [invalidateChangedKeys] and [labelsChanged]. [_drawn_mods]
+      is [null] until the first frame. */
+  private int[] _drawn_key_states = new int[0];
+  private Theme.Computed _drawn_tc = null;
+  private KeyboardData _drawn_keyboard = null;
+  private Pointers.Modifiers _drawn_mods = null;
+
+  /** Measurements, [null] unless the "frame_stats" option is enabled. */
+  private FrameStats _frame_stats = null;
+
   private Paint _topGradientPaint;
   private float _topGradientHeight;
 
@@ -147,6 +173,10 @@ public class Keyboard2View extends View
     _keyboard = kw;
     _shift_key = _keyboard.findKeyWithValue(KeyValue.SHIFT);
     _compose_key = _keyboard.findKeyWithValue(KeyValue.COMPOSE);
+    _key_count = 0;
+    _key_index = null;
+    for (KeyboardData.Row row : _keyboard.rows)
+      _key_count += row.keys.size();
     KeyModifier.set_modmap(_keyboard.modmap);
     reset();
   }
@@ -196,7 +226,7 @@ public class Keyboard2View extends View
   {
     updateFlags();
     _config.handler.key_down(k, isSwipe);
-    invalidate();
+    invalidateChangedKeys();
     vibrate();
   }
 
@@ -206,7 +236,7 @@ public class Keyboard2View extends View
     // flags.
     _config.handler.key_up(k, mods);
     updateFlags();
-    invalidate();
+    invalidateChangedKeys();
   }
 
   public void onPointerHold(KeyValue k, Pointers.Modifiers mods)
@@ -218,7 +248,7 @@ public class Keyboard2View extends View
   public void onPointerFlagsChanged(boolean shouldVibrate)
   {
     updateFlags();
-    invalidate();
+    invalidateChangedKeys();
     if (shouldVibrate)
       vibrate();
   }
@@ -229,9 +259,81 @@ public class Keyboard2View extends View
     _config.handler.mods_changed(_mods);
   }
 
+  /** Invalidate the view only if the state of a key or the labels changed
+      since the last frame. Keys that didn't change are not recorded again,
+      see [KeyLayers]. */
+  private void invalidateChangedKeys()
+  {
+    if (_tc == null || _keyboard == null
+        || _drawn_key_states.length != _key_count || labelsChanged())
+    {
+      invalidate();
+      return;
+    }
+    int key_index = 0;
+    for (KeyboardData.Row row : _keyboard.rows)
+      for (KeyboardData.Key k : row.keys)
+      {
+        if (key_state(k) != _drawn_key_states[key_index])
+        {
+          invalidate();
+          return;
+        }
+        key_index++;
+      }
+  }
+
+  /** Whether the labels changed since the last frame, because the theme, the
+      layout or the modifiers changed. [_key_labels] and [_key_layers] are
+      invalidated at the next frame when this is true. */
+  private boolean labelsChanged()
+  {
+    return _tc != _drawn_tc || _keyboard != _drawn_keyboard
+      || _drawn_mods == null || !same_labels(_mods, _drawn_mods);
+  }
+
+  /** Whether the labels modified by [a] and [b] are the same. Only some kinds
+      of modifiers change the labels, the other are ignored by
+      [KeyModifier.modify]. Pressing a letter doesn't change the labels. */
+  private static boolean same_labels(Pointers.Modifiers a,
+      Pointers.Modifiers b)
+  {
+    int i = 0, j = 0;
+    while (true)
+    {
+      while (i < a.size() && !changes_labels(a.get(i)))
+        i++;
+      while (j < b.size() && !changes_labels(b.get(j)))
+        j++;
+      if (i == a.size() || j == b.size())
+        return i == a.size() && j == b.size();
+      if (!a.get(i).equals(b.get(j)))
+        return false;
+      i++;
+      j++;
+    }
+  }
+
+  /** Must match the modifiers handled by [KeyModifier.modify]. */
+  private static boolean changes_labels(KeyValue mod)
+  {
+    switch (mod.getKind())
+    {
+      case Modifier:
+      case Compose_pending:
+      case Hangul_initial:
+      case Hangul_medial:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   @Override
   public boolean onTouch(View v, MotionEvent event)
   {
+    if (_frame_stats != null)
+      _frame_stats.touched();
     resetIdleTimer();
     if (_fadeMultiplier < 1.0f && !_peekMode && !_selectionFadeActive)
       snapToOpaque();
@@ -264,39 +366,13 @@ public class Keyboard2View extends View
     return (true);
   }
 
-  private KeyboardData.Row getRowAtPosition(float ty)
-  {
-    if (_keyboard == null || _tc == null)
-      return null;
-    float y = _config.marginTop;
-    if (ty < y)
-      return null;
-    for (KeyboardData.Row row : _keyboard.rows)
-    {
-      y += (row.shift + row.height) * _tc.row_height;
-      if (ty < y)
-        return row;
-    }
-    return null;
-  }
-
+  /** The key under a touch. Touches in the gaps between keys go to the
+      nearest key. */
   private KeyboardData.Key getKeyAtPosition(float tx, float ty)
   {
-    KeyboardData.Row row = getRowAtPosition(ty);
-    float x = _marginLeft;
-    if (row == null || tx < x)
+    if (_key_index == null)
       return null;
-    for (KeyboardData.Key key : row.keys)
-    {
-      float xLeft = x + key.shift * _keyWidth;
-      float xRight = xLeft + key.width * _keyWidth;
-      if (tx < xLeft)
-        return null;
-      if (tx < xRight)
-        return key;
-      x = xRight;
-    }
-    return null;
+    return _key_index.nearest_key(tx, ty);
   }
 
   private void vibrate()
@@ -306,6 +382,14 @@ public class Keyboard2View extends View
 
   @Override
   public void onMeasure(int wSpec, int hSpec)
+  {
+    long start = System.nanoTime();
+    measureKeyboard(wSpec, hSpec);
+    if (_frame_stats != null)
+      _frame_stats.measured(System.nanoTime() - start);
+  }
+
+  private void measureKeyboard(int wSpec, int hSpec)
   {
     int width;
     DisplayMetrics dm = getContext().getResources().getDisplayMetrics();
@@ -321,6 +405,8 @@ public class Keyboard2View extends View
       width += _insets_left + _insets_right;
     _keyWidth = (width - _marginLeft - _marginRight) / _keyboard.keysWidth;
     _tc = new Theme.Computed(_theme, _config, _keyWidth, _keyboard);
+    _key_index = new KeyIndex(_keyboard.rows, _keyboard.keysWidth,
+        _config.marginTop, _tc.row_height, _marginLeft, _keyWidth);
     // Compute the size of labels based on the width or the height of keys. The
     // margin around keys is taken into account. Keys normal aspect ratio is
     // assumed to be 3/2 for a 10 columns layout. It's generally more, the
@@ -409,16 +495,80 @@ public class Keyboard2View extends View
     // schedule onDraw before onMeasure has run.
     if (_tc == null || _keyboard == null)
       return;
-    int layerAlpha = (int)(255 * _fadeMultiplier);
-    boolean useFadeLayer = layerAlpha < 255;
-    if (useFadeLayer)
-      canvas.saveLayerAlpha(0, 0, getWidth(), getHeight(), layerAlpha);
-    // DST_OUT compositing requires an offscreen layer so the gradient
-    // erases content rather than the underlying window.
-    boolean useTopFade = _topGradientPaint != null && _topGradientHeight > 0;
-    if (useTopFade)
-      canvas.saveLayer(0, 0, getWidth(), getHeight(), null);
+    updateFrameStats();
+    if (_frame_stats == null)
+    {
+      drawKeyboard(canvas);
+      return;
+    }
+    _frame_stats.begin_draw();
+    drawKeyboard(canvas);
+    _frame_stats.end_draw();
+  }
+
+  /** Start or stop measuring when the option changes. */
+  private void updateFrameStats()
+  {
+    if (_config.frame_stats && _frame_stats == null)
+      startFrameStats();
+    else if (!_config.frame_stats && _frame_stats != null)
+    {
+      _frame_stats.stop();
+      _frame_stats = null;
+    }
+  }
+
+  /** Measure the window the view is attached to. In overlay mode, the view is
+      not in the IME window and its frames are not counted. */
+  private void startFrameStats()
+  {
+    _frame_stats = new FrameStats();
+    Window w = getParentWindow(getContext());
+    if (w != null && w.peekDecorView() == getRootView())
+      _frame_stats.attach(w, getDisplay());
+  }
+
+  private void drawKeyboard(Canvas canvas)
+  {
+    boolean retained = VERSION.SDK_INT >= 29 && canvas.isHardwareAccelerated();
+    // Decided once for both caches so that they can't diverge. The layers
+    // are also invalidated by frames that don't use them.
+    boolean labels_changed = labelsChanged();
+    if (VERSION.SDK_INT >= 29)
+      _key_layers.update(_key_count, labels_changed);
+    _key_labels.update(_key_count, labels_changed);
+    if (_drawn_key_states.length != _key_count)
+      _drawn_key_states = new int[_key_count];
+    _drawn_tc = _tc;
+    _drawn_keyboard = _keyboard;
+    _drawn_mods = _mods;
+    if (_topGradientPaint == null || _topGradientHeight <= 0)
+    {
+      drawKeys(canvas, retained);
+      return;
+    }
+    // DST_OUT compositing requires an offscreen layer so the gradient erases
+    // the keys rather than the underlying window. The layer only covers the
+    // gradient, the rest of the keyboard is drawn directly.
+    float gradTop = _tc.margin_top;
+    float gradBottom = gradTop + _topGradientHeight;
+    canvas.save();
+    canvas.clipRect(0, gradBottom, getWidth(), getHeight());
+    drawKeys(canvas, retained);
+    canvas.restore();
+    canvas.saveLayer(0, gradTop, getWidth(), gradBottom, null);
+    drawKeys(canvas, retained);
+    canvas.translate(0, gradTop);
+    canvas.drawRect(0, 0, getWidth(), _topGradientHeight, _topGradientPaint);
+    canvas.restore();
+  }
+
+  /** Draw every key. Called up to twice per frame, keys that are not
+      recorded again are cheap to draw a second time. */
+  void drawKeys(Canvas canvas, boolean retained)
+  {
     float y = _tc.margin_top;
+    int key_index = 0;
     for (KeyboardData.Row row : _keyboard.rows)
     {
       y += row.shift * _tc.row_height;
@@ -428,39 +578,65 @@ public class Keyboard2View extends View
       {
         x += k.shift * _keyWidth;
         float keyW = _keyWidth * k.width - _tc.horizontal_margin;
-        boolean isKeyDown = _pointers.isKeyDown(k);
-        boolean isAccent = isAccentKey(k);
-        boolean isMod = !isAccent && isModifierStyleKey(k);
-        Theme.Computed.Key tc_key;
-        if (isAccent)
-          tc_key = isKeyDown ? _tc.key_accent_activated : _tc.key_accent;
-        else if (isMod)
-          tc_key = isKeyDown ? _tc.key_modifier_activated : _tc.key_modifier;
-        else
-          tc_key = isKeyDown ? _tc.key_activated : _tc.key;
-        drawKeyFrame(canvas, x, y, keyW, keyH, tc_key);
-        if (_tc.dimple_paint != null)
-          drawKeyDimples(canvas, x, y, keyW, keyH, tc_key);
-        if (k.keys[0] != null)
-          drawLabel(canvas, k.keys[0], keyW / 2f + x, y, keyH, isKeyDown, isMod, isAccent, tc_key);
-        for (int i = 1; i < 9; i++)
+        int state = key_state(k);
+        _drawn_key_states[key_index] = state;
+        if (retained)
         {
-          if (k.keys[i] != null)
-            drawSubLabel(canvas, k.keys[i], x, y, keyW, keyH, i, isKeyDown, isMod, isAccent, tc_key);
+          Canvas c = _key_layers.begin(key_index, state, x, y, keyW, keyH);
+          if (c != null)
+          {
+            drawKey(c, k, key_index, x, y, keyW, keyH);
+            _key_layers.end(key_index);
+          }
+          _key_layers.draw(canvas, key_index);
         }
-        drawIndication(canvas, k, x, y, keyW, keyH, _tc);
+        // Skip the keys outside of the clip, for example outside of the
+        // gradient layer.
+        else if (!canvas.quickReject(x - _tc.margin_left,
+              y - _tc.vertical_margin / 2, x + keyW + _tc.margin_left,
+              y + keyH + _tc.vertical_margin / 2, Canvas.EdgeType.AA))
+          drawKey(canvas, k, key_index, x, y, keyW, keyH);
+        key_index++;
         x += _keyWidth * k.width;
       }
       y += row.height * _tc.row_height;
     }
-    if (useTopFade)
+  }
+
+  /** Draw a key, its labels and decorations. [key_index] is the position of
+      the key in the layout. */
+  void drawKey(Canvas canvas, KeyboardData.Key k, int key_index, float x,
+      float y, float keyW, float keyH)
+  {
+    boolean isKeyDown = _pointers.isKeyDown(k);
+    boolean isAccent = isAccentKey(k);
+    boolean isMod = !isAccent && isModifierStyleKey(k);
+    Theme.Computed.Key tc_key;
+    if (isAccent)
+      tc_key = isKeyDown ? _tc.key_accent_activated : _tc.key_accent;
+    else if (isMod)
+      tc_key = isKeyDown ? _tc.key_modifier_activated : _tc.key_modifier;
+    else
+      tc_key = isKeyDown ? _tc.key_activated : _tc.key;
+    drawKeyFrame(canvas, x, y, keyW, keyH, tc_key);
+    if (_tc.dimple_paint != null)
+      drawKeyDimples(canvas, key_index, x, y, keyW, keyH, tc_key);
+    KeyLabels.Label[] labels = _key_labels.get(key_index);
+    if (labels == null)
     {
-      canvas.translate(0, _tc.margin_top);
-      canvas.drawRect(0, 0, getWidth(), _topGradientHeight, _topGradientPaint);
-      canvas.restore();
+      labels = layoutLabels(k, keyW, keyH, isMod, isAccent);
+      _key_labels.set(key_index, labels);
     }
-    if (useFadeLayer)
-      canvas.restore();
+    for (KeyLabels.Label l : labels)
+      drawLabel(canvas, l, x, y, isKeyDown, isMod, isAccent, tc_key);
+    drawIndication(canvas, k, x, y, keyW, keyH, _tc);
+  }
+
+  /** Everything that changes the appearance of a key other than the theme
+      and the modifiers. The key must be drawn again when this changes. */
+  int key_state(KeyboardData.Key k)
+  {
+    return _pointers.getKeyFlags(k);
   }
 
   /** Reset idle fade timer. Called on every touch. */
@@ -478,7 +654,6 @@ public class Keyboard2View extends View
       _fadeAnimator.cancel();
     _fadeMultiplier = 1.0f;
     applyContainerAlpha();
-    invalidate();
   }
 
   private void startFadeAnimation(float target, long durationMs)
@@ -490,17 +665,20 @@ public class Keyboard2View extends View
     _fadeAnimator.addUpdateListener(animation -> {
       _fadeMultiplier = (float)animation.getAnimatedValue();
       applyContainerAlpha();
-      invalidate();
     });
     _fadeAnimator.start();
   }
 
-  /** Apply the fade multiplier to the keyboard background. */
+  /** Apply the fade multiplier to the view, background included. While
+      faded, the view is drawn into a hardware layer that is composited with
+      the alpha, the keys are not drawn again at every step of the fade. */
   private void applyContainerAlpha()
   {
     if (_config == null) return;
-    if (getBackground() != null)
-      getBackground().setAlpha((int)(_config.keyboardOpacity * _fadeMultiplier));
+    setAlpha(_fadeMultiplier);
+    int layerType = (_fadeMultiplier < 1.0f) ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE;
+    if (getLayerType() != layerType)
+      setLayerType(layerType, null);
   }
 
   /** Toggle peek mode (called from long-press spacebar event). */
@@ -536,6 +714,14 @@ public class Keyboard2View extends View
     }
   }
 
+  @Override
+  public void onAttachedToWindow()
+  {
+    super.onAttachedToWindow();
+    if (_config.frame_stats && _frame_stats == null)
+      startFrameStats();
+  }
+
   @Override
   public void onDetachedFromWindow()
   {
@@ -544,6 +730,14 @@ public class Keyboard2View extends View
     if (_fadeAnimator != null)
       _fadeAnimator.cancel();
     _fadeMultiplier = 1.0f;
+    applyContainerAlpha();
+    if (_frame_stats != null)
+    {
+      _frame_stats.stop();
+      _frame_stats = null;
+    }
+    if (VERSION.SDK_INT >= 29)
+      _key_layers.clear();
   }
 
   /** Draw borders and background of the key. */
@@ -557,26 +751,16 @@ public class Keyboard2View extends View
     canvas.drawRoundRect(_tmpRect, r, r, tc.bg_paint);
     if (w > 0.f)
     {
-      float overlap = r - r * 0.85f + w; // sin(45°)
-      drawBorder(canvas, x, y, x + overlap, y + keyH, tc.border_left_paint, tc);
-      drawBorder(canvas, x + keyW - overlap, y, x + keyW, y + keyH, tc.border_right_paint, tc);
-      drawBorder(canvas, x, y, x + keyW, y + overlap, tc.border_top_paint, tc);
-      drawBorder(canvas, x, y + keyH - overlap, x + keyW, y + keyH, tc.border_bottom_paint, tc);
+      Theme.Computed.Border b = tc.border(keyW, keyH);
+      canvas.translate(x, y);
+      canvas.drawPath(b.left, tc.border_left_paint);
+      canvas.drawPath(b.right, tc.border_right_paint);
+      canvas.drawPath(b.top, tc.border_top_paint);
+      canvas.drawPath(b.bottom, tc.border_bottom_paint);
+      canvas.translate(-x, -y);
     }
   }
 
-  /** Clip to draw a border at a time. This allows to call [drawRoundRect]
-      several time with the same parameters but a different Paint. */
-  void drawBorder(Canvas canvas, float clipl, float clipt, float clipr,
-      float clipb, Paint paint, Theme.Computed.Key tc)
-  {
-    float r = tc.border_radius;
-    canvas.save();
-    canvas.clipRect(clipl, clipt, clipr, clipb);
-    canvas.drawRoundRect(_tmpRect, r, r, paint);
-    canvas.restore();
-  }
-
   private int labelColor(KeyValue k, boolean isKeyDown, boolean sublabel,
       boolean isModifier, boolean isAccent)
   {
@@ -613,60 +797,95 @@ public class Keyboard2View extends View
     return sublabel ? _theme.subLabelColor : _theme.labelColor;
   }
 
-  private void drawLabel(Canvas canvas, KeyValue kv, float x, float y,
-      float keyH, boolean isKeyDown, boolean isModifier, boolean isAccent,
-      Theme.Computed.Key tc)
+  /** Resolve the labels of a key for the current modifiers. */
+  private KeyLabels.Label[] layoutLabels(KeyboardData.Key k, float keyW,
+      float keyH, boolean isModifier, boolean isAccent)
   {
-    kv = modifyKey(kv, _mods);
-    if (kv == null)
-      return;
-    float textSize = scaleTextSize(kv, true);
-    boolean specialFont = kv.hasFlagsAny(KeyValue.FLAG_KEY_FONT);
-    int color = labelColor(kv, isKeyDown, false, isModifier, isAccent);
-    Paint p = tc.label_paint(specialFont, color, textSize);
-    float textY = (keyH - p.ascent() - p.descent()) / 2f + y;
-    if (tc._outline_enabled)
+    KeyLabels.Label[] labels = new KeyLabels.Label[9];
+    int n = 0;
+    for (int i = 0; i < 9; i++)
     {
-      Paint op = tc.label_outline_paint(specialFont, 0xCC000000, textSize);
-      canvas.drawText(kv.getString(), x, textY, op);
+      KeyValue kv = (k.keys[i] == null) ? null : modifyKey(k.keys[i], _mods);
+      if (kv == null)
+        continue;
+      labels[n++] = (i == 0) ?
+        layoutLabel(kv, keyW, keyH, isModifier, isAccent) :
+        layoutSubLabel(kv, keyW, keyH, i, isModifier, isAccent);
     }
-    canvas.drawText(kv.getString(), x, textY, p);
+    return Arrays.copyOf(labels, n);
   }
 
-  private void drawSubLabel(Canvas canvas, KeyValue kv, float x, float y,
-      float keyW, float keyH, int sub_index, boolean isKeyDown,
-      boolean isModifier, boolean isAccent, Theme.Computed.Key tc)
+  private KeyLabels.Label layoutLabel(KeyValue kv, float keyW, float keyH,
+      boolean isModifier, boolean isAccent)
+  {
+    float textSize = scaleTextSize(kv, true);
+    boolean specialFont = kv.hasFlagsAny(KeyValue.FLAG_KEY_FONT);
+    int color = labelColor(kv, false, false, isModifier, isAccent);
+    Paint p = _tc.key.label_paint(specialFont, color, textSize);
+    float textY = (keyH - p.ascent() - p.descent()) / 2f;
+    return new KeyLabels.Label(kv, kv.getString().length(), 0, textSize,
+        Paint.Align.CENTER, keyW / 2f, textY, color);
+  }
+
+  private KeyLabels.Label layoutSubLabel(KeyValue kv, float keyW, float keyH,
+      int sub_index, boolean isModifier, boolean isAccent)
   {
     Paint.Align a = LABEL_POSITION_H[sub_index];
     Vertical v = LABEL_POSITION_V[sub_index];
-    kv = modifyKey(kv, _mods);
-    if (kv == null)
-      return;
     float textSize = scaleTextSize(kv, false);
     boolean specialFont = kv.hasFlagsAny(KeyValue.FLAG_KEY_FONT);
-    int color = labelColor(kv, isKeyDown, true, isModifier, isAccent);
-    Paint p = tc.sublabel_paint(specialFont, color, textSize, a);
+    int color = labelColor(kv, false, true, isModifier, isAccent);
+    Paint p = _tc.key.sublabel_paint(specialFont, color, textSize, a);
     float subPadding = _config.keyPadding;
-    float textY = y;
+    float textY;
     if (v == Vertical.CENTER)
-      textY += (keyH - p.ascent() - p.descent()) / 2f;
+      textY = (keyH - p.ascent() - p.descent()) / 2f;
     else
-      textY += (v == Vertical.TOP) ? subPadding - p.ascent() : keyH - subPadding - p.descent();
-    float textX = x;
+      textY = (v == Vertical.TOP) ? subPadding - p.ascent() : keyH - subPadding - p.descent();
+    float textX;
     if (a == Paint.Align.CENTER)
-      textX += keyW / 2f;
+      textX = keyW / 2f;
     else
-      textX += (a == Paint.Align.LEFT) ? subPadding : keyW - subPadding;
-    String label = kv.getString();
-    int label_len = label.length();
+      textX = (a == Paint.Align.LEFT) ? subPadding : keyW - subPadding;
+    int label_len = kv.getString().length();
     if (label_len > 3 && kv.getKind() == KeyValue.Kind.String)
       label_len = 3;
-    if (tc._outline_enabled)
+    return new KeyLabels.Label(kv, label_len, sub_index, textSize, a, textX,
+        textY, color);
+  }
+
+  private void drawLabel(Canvas canvas, KeyLabels.Label l, float x, float y,
+      boolean isKeyDown, boolean isModifier, boolean isAccent,
+      Theme.Computed.Key tc)
+  {
+    boolean sublabel = l.index != 0;
+    int color = isKeyDown ?
+      labelColor(l.kv, true, sublabel, isModifier, isAccent) : l.color;
+    float textX = x + l.x;
+    float textY = y + l.y;
+    if (tc._outline_enabled || tc._shadow_enabled)
     {
-      Paint op = tc.sublabel_outline_paint(specialFont, 0xCC000000, textSize, a);
-      canvas.drawText(label, 0, label_len, textX, textY, op);
+      // Outline and shadow are expensive to rasterize, draw a cached bitmap.
+      Theme.Computed.Halo h = isKeyDown ? l.halo_pressed : l.halo;
+      if (h == null || h.evicted)
+      {
+        h = _tc.label_halo(tc, l.text, l.text_len, l.special_font, color,
+            l.text_size, l.align, sublabel);
+        if (isKeyDown)
+          l.halo_pressed = h;
+        else
+          l.halo = h;
+      }
+      // Drawn at a whole pixel position to avoid filtering the bitmap.
+      if (h != null)
+        canvas.drawBitmap(h.bitmap, Math.round(textX + h.dx),
+            Math.round(textY + h.dy), null);
+      return;
     }
-    canvas.drawText(label, 0, label_len, textX, textY, p);
+    Paint p = sublabel ?
+      tc.sublabel_paint(l.special_font, color, l.text_size, l.align) :
+      tc.label_paint(l.special_font, color, l.text_size);
+    canvas.drawText(l.text, 0, l.text_len, textX, textY, p);
   }
 
   private void drawIndication(Canvas canvas, KeyboardData.Key k, float x,
@@ -710,30 +929,18 @@ public class Keyboard2View extends View
     return false;
   }
 
-  /** Draw scattered dimple dots on a key face (for injection-molding themes). */
-  void drawKeyDimples(Canvas canvas, float x, float y, float keyW, float keyH,
-      Theme.Computed.Key tc)
+  /** Draw scattered dimple dots on a key face (for injection-molding themes).
+      The patterns are computed by [Theme.Computed] and chosen from the
+      position of the key in the layout. */
+  void drawKeyDimples(Canvas canvas, int key_index, float x, float y,
+      float keyW, float keyH, Theme.Computed.Key tc)
   {
-    float w = tc.border_width;
-    float inset = w + 2f;
-    float innerW = keyW - inset * 2;
-    float innerH = keyH - inset * 2;
-    if (innerW <= 0 || innerH <= 0)
+    Path dimples = _tc.dimples(keyW, keyH, tc.border_width, key_index);
+    if (dimples == null)
       return;
-    // Deterministic seed from position so pattern is stable across redraws
-    long seed = Float.floatToIntBits(x) * 31L + Float.floatToIntBits(y);
-    Random rng = new Random(seed);
-    // Scale dot count by key area relative to a standard key
-    float refArea = _keyWidth * _tc.row_height;
-    int dotCount = Math.max(4, (int)(20 * (innerW * innerH) / refArea));
-    float density = getResources().getDisplayMetrics().density;
-    float dotRadius = 1.5f * density;
-    for (int i = 0; i < dotCount; i++)
-    {
-      float dx = x + inset + rng.nextFloat() * innerW;
-      float dy = y + inset + rng.nextFloat() * innerH;
-      canvas.drawCircle(dx, dy, dotRadius, _tc.dimple_paint);
-    }
+    canvas.translate(x, y);
+    canvas.drawPath(dimples, _tc.dimple_paint);
+    canvas.translate(-x, -y);
   }
 
   private float scaleTextSize(KeyValue k, boolean main_label)
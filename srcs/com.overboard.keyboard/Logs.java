@@ -36,6 +36,12 @@ public final class Logs
       _debug_logs.println(s);
   }
 
+  /** Logged even when debug logs are disabled. */
+  public static void info(String s)
+  {
+    Log.i(TAG, s);
+  }
+
   public static void exn(String msg, Exception e)
   {
     Log.e(TAG, msg, e);
@@ -0,0 +1,192 @@
+package com.overboard.keyboard;
+
+/** This file is generated, see [srcs/compose/gen_modifier_tables.py]. */
+
+public final class ModifierTablesData
+{
+  /** Characters followed by the character they are modified into. */
+  public static String pairs(KeyValue.Modifier m)
+  {
+    switch (m)
+    {
+      case SHIFT: return SHIFT;
+      case FN: return FN;
+      case GRAVE: return GRAVE;
+      case AIGU: return AIGU;
+      case CIRCONFLEXE: return CIRCONFLEXE;
+      case TILDE: return TILDE;
+      case CEDILLE: return CEDILLE;
+      case TREMA: return TREMA;
+      case CARON: return CARON;
+      case RING: return RING;
+      case MACRON: return MACRON;
+      case OGONEK: return OGONEK;
+      case DOT_ABOVE: return DOT_ABOVE;
+      case DOUBLE_AIGU: return DOUBLE_AIGU;
+      case ORDINAL: return ORDINAL;
+      case SUPERSCRIPT: return SUPERSCRIPT;
+      case SUBSCRIPT: return SUBSCRIPT;
+      case ARROWS: return ARROWS;
+      case BOX: return BOX;
+      case SLASH: return SLASH;
+      case BAR: return BAR;
+      case DOT_BELOW: return DOT_BELOW;
+      case HORN: return HORN;
+      case HOOK_ABOVE: return HOOK_ABOVE;
+      case DOUBLE_GRAVE: return DOUBLE_GRAVE;
+      case SMALL_CAPS: return SMALL_CAPS;
+      default: return null;
+    }
+  }
+
+  /** Compose state the tables are generated from. */
+  public static int compose_state(KeyValue.Modifier m)
+  {
+    switch (m)
+    {
+      case SHIFT: return ComposeKeyData.shift;
+      case FN: return ComposeKeyData.fn;
+      case GRAVE: return ComposeKeyData.accent_grave;
+      case AIGU: return ComposeKeyData.accent_aigu;
+      case CIRCONFLEXE: return ComposeKeyData.accent_circonflexe;
+      case TILDE: return ComposeKeyData.accent_tilde;
+      case CEDILLE: return ComposeKeyData.accent_cedille;
+      case TREMA: return ComposeKeyData.accent_trema;
+      case CARON: return ComposeKeyData.accent_caron;
+      case RING: return ComposeKeyData.accent_ring;
+      case MACRON: return ComposeKeyData.accent_macron;
+      case OGONEK: return ComposeKeyData.accent_ogonek;
+      case DOT_ABOVE: return ComposeKeyData.accent_dot_above;
+      case DOUBLE_AIGU: return ComposeKeyData.accent_double_aigu;
+      case ORDINAL: return ComposeKeyData.accent_ordinal;
+      case SUPERSCRIPT: return ComposeKeyData.accent_superscript;
+      case SUBSCRIPT: return ComposeKeyData.accent_subscript;
+      case ARROWS: return ComposeKeyData.accent_arrows;
+      case BOX: return ComposeKeyData.accent_box;
+      case SLASH: return ComposeKeyData.accent_slash;
+      case BAR: return ComposeKeyData.accent_bar;
+      case DOT_BELOW: return ComposeKeyData.accent_dot_below;
+      case HORN: return ComposeKeyData.accent_horn;
+      case HOOK_ABOVE: return ComposeKeyData.accent_hook_above;
+      case DOUBLE_GRAVE: return ComposeKeyData.accent_double_grave;
+      case SMALL_CAPS: return ComposeKeyData.accent_small_caps;
+      default: return -1;
+    }
+  }
+
+  static final String SHIFT =
+    "\u00df\u1e9e\u0131\u0130\u02b0\u1d34\u02b2\u1d36\u02b3\u1d3f\u02b7\u1d42\u02e1\u1d38\u0905\u0906\u0907\u0908\u0909\u090a\u090b\u0960\u090c\u0961\u090f\u0910\u0913\u0914\u0915\u0916\u0917\u0918" +
+    "\u091a\u091b\u091c\u091d\u091f\u0920\u0921\u0922\u0924\u0925\u0926\u0927\u0928\u0923\u092c\u092d\u092e\u0902\u0932\u0933\u0938\u0936\u0939\u0903\u093f\u0940\u0941\u0942\u0943\u0944\u0945\u0972" +
+    "\u0947\u0948\u0949\u0911\u094b\u094c\u0952\u0951\u0962\u0963\u0a85\u0a86\u0a87\u0a88\u0a89\u0a8a\u0a8f\u0a90\u0a93\u0a94\u0a95\u0a96\u0a97\u0a98\u0a9a\u0a9b\u0a9c\u0a9d\u0a9f\u0aa0\u0aa1\u0aa2" +
+    "\u0aa4\u0aa5\u0aa6\u0aa7\u0aa8\u0aa3\u0aaa\u0aab\u0aac\u0aad\u0aae\u0a82\u0ab2\u0ab3\u0ab8\u0ab6\u0ab9\u0a83\u0abf\u0ac0\u0ac1\u0ac2\u0ac7\u0ac8\u0acb\u0acc\u0bf9\u20a8\u1d43\u1d2c\u1d47\u1d2e" +
+    "\u1d48\u1d30\u1d49\u1d31\u1d4d\u1d33\u1d4f\u1d37\u1d50\u1d39\u1d52\u1d3c\u1d56\u1d3e\u1d57\u1d40\u1d58\u1d41\u1d5b\u2c7d\u1d60\u1db2\u1dbe\u1d23\u2071\u1d35\u207f\u1d3a\u20b9\u20a8\u2190\u21d0" +
+    "\u2191\u21d1\u2192\u21d2\u2193\u21d3\u2196\u21d6\u2197\u21d7\u2198\u21d8\u2199\u21d9\u2208\u2209\u220b\u220c\u2282\u2284\u2283\u2285\u2286\u2288\u2287\u2289\u2500\u2550\u2502\u2551\u250c\u2554" +
+    "\u2510\u2557\u2514\u255a\u2518\u255d\u251c\u2560\u2524\u2563\u252c\u2566\u2534\u2569\u253c\u256c";
+
+  static final String FN =
+    "!\u00a1\"\u201e%\u2030'\u201a(\u201c)\u201d*\u00b0,\u00b7-\u2013.\u2026<\u00ab=\u2248>\u00bb?\u00bf[\u2018]\u2019" +
+    "^\u00ac_\u2014a\u00e6b\u20b1c\u00a2e\u20ach\u20b4l\u00a3o\u0153p\u20bdr\u20b9u\u00b5y\u00a5z\u20bf{\u2039|\u00a6" +
+    "}\u203a\u00a7\u00b6\u00b1\u2213\u00d7\u2219\u0398\u03f4\u03a0\u220f\u03a3\u2211\u03b2\u03d0\u03b3\u0263\u03b5\u03f5\u03b8\u03d1\u03ba\u03f0\u03c0\u03d6\u03c1\u03f1\u03c3\u03c2\u03c5\u03d2" +
+    "\u03c6\u03d5\u0430\u0463\u0433\u0491\u0434\u0499\u0435\u0463\u0438\u0456\u0439\u0458\u043b\u052f\u043c\u046b\u043d\u0467\u043e\u047b\u0441\u0455\u0444\u0473\u0445\u04bb\u0447\u045b\u0448\u0471" +
+    "\u044a\u044c\u044c\u044a\u044d\u0454\u0456\u0438\u0458\u0439\u045b\u0447\u045f\u04b7\u0481\u049b\u049b\u0481\u04b7\u045f\u04c8\u0529\u0513\u052f\u0627\u0622\u0628\u066e\u062a\u0637\u062b\u067e" +
+    "\u062d\u06c1\u062f\u0630\u0631\u0695\u0632\u0698\u0633\u0635\u0634\u0636\u0635\u0636\u0637\u0638\u0639\u0621\u063a\u06af\u0641\u06a4\u0642\u063a\u0643\u06a9\u0644\u06b5\u0645\u0640\u0646\u06ba" +
+    "\u0647\u06be\u0648\u06a1\u064a\u06cc\u064f\u06c6\u0650\u06ce\u0698\u0638\u06a9\u0643\u06be\u0647\u06cc\u064a\u0901\u0900\u0902\u0955\u0905\u0972\u0906\u0911\u0907\u0973\u0908\u0974\u0909\u0976" +
+    "\u090a\u0977\u090b\u0960\u090c\u0961\u090f\u090d\u0910\u090e\u0913\u0912\u0914\u0975\u0915\u0958\u0916\u0959\u0917\u095a\u0918\u097b\u091a\u097c\u091c\u095b\u091d\u0979\u091f\u0978\u0921\u095c" +
+    "\u0922\u095d\u0923\u097e\u0928\u0929\u092b\u095e\u092c\u097f\u092f\u095f\u0930\u0931\u0933\u0934\u0935\u097a\u093c\u094e\u093d\u097d\u093e\u0949\u093f\u093a\u0940\u093b\u0941\u0904\u0943\u0944" +
+    "\u0947\u0945\u0948\u0946\u094b\u094a\u094c\u094f\u0953\u0954\u0956\u0957\u0962\u0963\u0964\u0965\u0970\u0971\u2020\u2021\u20b9\u20a8\u2190\u21d0\u2191\u21d1\u2192\u21d2\u2193\u21d3\u2194\u21d4" +
+    "\u2195\u21d5\u2196\u21d6\u2197\u21d7\u2198\u21d8\u2199\u21d9\u2203\u2204\u2206\u2359\u2207\u2362\u2227\u22c0\u2228\u22c1\u2229\u22c2\u222a\u22c3\u222b\u222e\u2282\u2286\u2283\u2287\u22a4\u2361" +
+    "\u22b7\u22b6\u22c4\u233a\u235d\u2367\u2375\u2379\u237a\u2376\u2395\u235e\ua649\u0452\ua651\u044b\ua657\u044f";
+
+  static final String GRAVE =
+    "a\u00e0e\u00e8i\u00ecn\u01f9o\u00f2u\u00f9w\u1e81y\u1ef3\u00e2\u1ea7\u00ea\u1ec1\u00f4\u1ed3\u00fc\u01dc\u0103\u1eb1\u0113\u1e15\u014d\u1e51\u01a1\u1edd" +
+    "\u01b0\u1eeb\u03b1\u1f70\u03b5\u1f72\u03b7\u1f74\u03b9\u1f76\u03bf\u1f78\u03c5\u1f7a\u03c9\u1f7c\u0435\u0450\u0438\u045d";
+
+  static final String AIGU =
+    "a\u00e1c\u0107e\u00e9g\u01f5i\u00edk\u1e31l\u013am\u1e3fn\u0144o\u00f3p\u1e55r\u0155s\u015bu\u00faw\u1e83y\u00fd" +
+    "z\u017a\u00e2\u1ea5\u00e5\u01fb\u00e6\u01fd\u00e7\u1e09\u00ea\u1ebf\u00ef\u1e2f\u00f4\u1ed1\u00f5\u1e4d\u00f8\u01ff\u00fc\u01d8\u0103\u1eaf\u0113\u1e17\u014d\u1e53\u0169\u1e79\u01a1\u1edb" +
+    "\u01b0\u1ee9\u03b1\u03ac\u03b5\u03ad\u03b7\u03ae\u03b9\u03af\u03bf\u03cc\u03c5\u03cd\u0433\u0453\u043a\u045c\u1e61\u1e65";
+
+  static final String CIRCONFLEXE =
+    "+\u2a23a\u00e2c\u0109e\u00eag\u011dh\u0125i\u00eej\u0135o\u00f4u\u00fbw\u0175y\u0177z\u1e91\u00e0\u1ea7\u00e1\u1ea5\u00e3\u1eab" +
+    "\u00e8\u1ec1\u00e9\u1ebf\u00f2\u1ed3\u00f3\u1ed1\u00f5\u1ed7\u015d\u015d\u01a1\u1ed5\u1ea1\u1ead\u1ea3\u1ea9\u1eb9\u1ec7\u1ebb\u1ec3\u1ebd\u1ec5\u1ecd\u1ed9\u2248\u2a6f";
+
+  static final String TILDE =
+    "a\u00e3e\u1ebdi\u0129n\u00f1o\u00f5u\u0169v\u1e7dy\u1ef9\u00e2\u1eab\u00ea\u1ec5\u00f3\u1e4d\u00f6\u1e4f\u00fa\u1e79\u0103\u1eb5\u014d\u022d\u01a1\u1ee1" +
+    "\u01b0\u1eef";
+
+  static final String CEDILLE =
+    "c\u00e7d\u1e11e\u0229g\u0123h\u1e29k\u0137l\u013cn\u0146r\u0157s\u015ft\u0163\u0107\u1e09\u0115\u1e1d";
+
+  static final String TREMA =
+    "*\u2363a\u00e4e\u00ebh\u1e27i\u00efo\u00f6t\u1e97u\u00fcw\u1e85x\u1e8dy\u00ff~\u2368\u00b0\u2364\u00ed\u1e2f\u00f5\u1e4f\u00f9\u01dc" +
+    "\u00fa\u01d8\u0101\u01df\u014d\u022b\u016b\u01d6\u01d4\u01da\u03b9\u03ca\u03c5\u03cb\u03cd\u03b0\u03d2\u03d4\u0430\u04d3\u0436\u04dd\u0437\u04df\u0438\u04e5\u043e\u04e7\u0443\u04f1\u0447\u04f5" +
+    "\u044b\u04f9\u044d\u04ed\u04d9\u04db\u04e9\u04eb\u1f7a\u1fe2\u1fe6\u1fe7\u2207\u2362";
+
+  static final String CARON =
+    "a\u01cec\u010dd\u010fe\u011bg\u01e7h\u021fi\u01d0j\u01f0k\u01e9l\u013en\u0148o\u01d2r\u0159s\u0161t\u0165u\u01d4" +
+    "z\u017e\u00fc\u01da\u0292\u01ef\u1e61\u1e67";
+
+  static final String RING =
+    "a\u00e5u\u016fw\u1e98y\u1e99~\u2e1b\u00e1\u01fb";
+
+  static final String MACRON =
+    "a\u0101e\u0113g\u1e21i\u012bo\u014du\u016by\u0233\u00e4\u01df\u00e6\u01e3\u00e8\u1e15\u00e9\u1e17\u00f2\u1e51\u00f3\u1e53\u00f5\u022d\u00f6\u022b\u00fc\u01d6" +
+    "\u01eb\u01ed\u0227\u01e1\u022f\u0231\u03b1\u1fb1\u03b9\u1fd1\u03c5\u1fe1\u0438\u04e3\u0443\u04ef\u1e37\u1e39\u1e5b\u1e5d";
+
+  static final String OGONEK =
+    "a\u0105e\u0119i\u012fo\u01ebu\u0173\u014d\u01ed";
+
+  static final String DOT_ABOVE =
+    "a\u0227b\u1e03c\u010bd\u1e0be\u0117f\u1e1fg\u0121h\u1e23i\u0131j\u0237m\u1e41n\u1e45o\u022fp\u1e57r\u1e59s\u1e61" +
+    "t\u1e6bw\u1e87x\u1e8by\u1e8fz\u017c~\u2a6a\u0101\u01e1\u014d\u0231\u015b\u1e65\u0161\u1e67\u017f\u1e9b\u1e63\u1e69\u2208\u22f5\u2227\u2a51\u2228\u2a52\u2261\u2a67" +
+    "\u2286\u2ac3\u2287\u2ac4\u2a2f\u2a30";
+
+  static final String DOUBLE_AIGU =
+    " \u02ddo\u0151u\u0171\u0443\u04f3";
+
+  static final String ORDINAL =
+    "*\u00b01\u00aa2\u00ba3\u207f4\u1d485\u1d496\u02b37\u02e28\u1d579\u02b0a\u00aao\u00ba";
+
+  static final String SUPERSCRIPT =
+    "(\u207d)\u207e+\u207a-\u207b0\u20701\u00b92\u00b23\u00b34\u20745\u20756\u20767\u20778\u20789\u2079=\u207ca\u1d43" +
+    "b\u1d47c\u1d9cd\u1d48e\u1d49f\u1da0g\u1d4dh\u02b0i\u2071j\u02b2k\u1d4fl\u02e1m\u1d50n\u207fo\u1d52p\u1d56r\u02b3" +
+    "s\u02e2t\u1d57u\u1d58v\u1d5bw\u02b7x\u02e3y\u02b8z\u1dbb\u014b\u1d51\u0250\u1d44\u0252\u1d9b\u0254\u1d53\u0255\u1d9d\u0259\u1d4a\u025b\u1d4b\u025c\u1d9f" +
+    "\u025f\u1da1\u0263\u02e0\u0265\u1da3\u0266\u02b1\u0268\u1da4\u026f\u1d5a\u0270\u1dad\u0271\u1dac\u0275\u1db1\u0279\u02b4\u027b\u02b5\u0281\u02b6\u0282\u1db3\u0283\u1db4\u0289\u1db6\u028a\u1db7" +
+    "\u028c\u1dba\u0292\u1dbe\u03b2\u1d5d\u03b4\u1d5f\u03b8\u1dbf\u03b9\u1da5\u03c6\u1d60\u03c7\u1d61\u04e9\u1db1\u1d02\u1d46\u1d08\u1d4c\u1d09\u1d4e\u1d1d\u1d59";
+
+  static final String SUBSCRIPT =
+    "(\u208d)\u208e+\u208a-\u208b0\u20801\u20812\u20823\u20834\u20845\u20856\u20867\u20878\u20889\u2089=\u208ca\u2090" +
+    "e\u2091h\u2095i\u1d62j\u2c7ck\u2096l\u2097m\u2098n\u2099o\u2092p\u209ar\u1d63s\u209bt\u209cu\u1d64v\u1d65x\u2093" +
+    "\u0259\u2094\u03b2\u1d66\u03b3\u1d67\u03c1\u1d68\u03c6\u1d69\u03c7\u1d6a";
+
+  static final String ARROWS =
+    ".\u21b50\u21941\u21992\u21933\u21984\u21905\u21956\u21927\u21968\u21919\u2197";
+
+  static final String BOX =
+    ".\u25020\u25001\u25142\u25343\u25184\u251c5\u253c6\u25247\u250c8\u252c9\u2510";
+
+  static final String SLASH =
+    "a\u2c65b\u2422c\u023ce\u0247l\u0142o\u00f8t\u2c66\u00f3\u01ff";
+
+  static final String BAR =
+    "2\u01bbb\u0180d\u0111g\u01e5h\u0127i\u0268j\u0249l\u019ao\u0275p\u1d7dr\u024dt\u0167u\u0289y\u024fz\u01b6\u0237\u025f" +
+    "\u043e\u04e9\u0445\u04ff\u044c\u048d\u04af\u04b1\u04e7\u04eb";
+
+  static final String DOT_BELOW =
+    "+\u2a25-\u2a2a=\u2a66a\u1ea1b\u1e05d\u1e0de\u1eb9h\u1e25i\u1ecbk\u1e33l\u1e37m\u1e43n\u1e47o\u1ecdr\u1e5bs\u1e63" +
+    "t\u1e6du\u1ee5v\u1e7fw\u1e89y\u1ef5z\u1e93\u00e2\u1ead\u00ea\u1ec7\u00f4\u1ed9\u0103\u1eb7\u01a1\u1ee3\u01b0\u1ef1\u1e61\u1e69";
+
+  static final String HORN =
+    "o\u01a1u\u01b0\u00f2\u1edd\u00f3\u1edb\u00f5\u1ee1\u00f9\u1eeb\u00fa\u1ee9\u0169\u1eef\u1ecd\u1ee3\u1ecf\u1edf\u1ee5\u1ef1\u1ee7\u1eed";
+
+  static final String HOOK_ABOVE =
+    "a\u1ea3e\u1ebbi\u1ec9o\u1ecfu\u1ee7y\u1ef7\u00e2\u1ea9\u00ea\u1ec3\u00f4\u1ed5\u0103\u1eb3\u01a1\u1edf\u01b0\u1eed";
+
+  static final String DOUBLE_GRAVE =
+    "a\u0201e\u0205i\u0209o\u020dr\u0211u\u0215\u0475\u0477";
+
+  static final String SMALL_CAPS =
+    "a\u1d00b\u0299c\u1d04d\u1d05e\u1d07g\u0262h\u029ci\u026aj\u1d0ak\u1d0bl\u029fm\u1d0dn\u0274o\u1d0fp\u1d18r\u0280" +
+    "t\u1d1bu\u1d1cv\u1d20w\u1d21xxy\u028fz\u1d22\u00c6\u1d01\u00d0\u1d06\u0141\u1d0c\u014b\u1d0e\u0152\u0276\u0180\u1d03\u0186\u1d10\u018e\u2c7b\u0193\u029b" +
+    "\u0197\u1d7b\u01b7\u1d23\u0222\u1d15\u0243\u1d03\u0244\u1d7e\u0279\u1d1a\u0393\u1d26\u039b\u1d27\u03a0\u1d28\u03a1\u1d29\u03a8\u1d2a\u0418\u1d0e\u041b\u1d2b\u042f\u1d19\ua4e4\u1d1a";
+}
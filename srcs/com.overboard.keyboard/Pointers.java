@@ -83,6 +83,16 @@ public final class Pointers implements Handler.Callback
     return -1;
   }
 
+  /** Flags of the pointer on key [k]. Returns [-1] if the key is not
+      pressed. */
+  public int getKeyFlags(KeyboardData.Key k)
+  {
+    for (Pointer p : _ptrs)
+      if (p.key == k)
+        return p.flags;
+    return -1;
+  }
+
   /** The key must not be already latched . */
   void add_fake_pointer(KeyboardData.Key key, KeyValue kv, boolean locked)
   {
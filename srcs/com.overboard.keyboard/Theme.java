@@ -2,10 +2,17 @@ package com.overboard.keyboard;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.util.AttributeSet;
+import android.util.LruCache;
+import java.util.ArrayList;
+import java.util.Random;
 
 public class Theme
 {
@@ -17,6 +24,7 @@ public class Theme
   public final int colorKeyAccent;
   public final int colorKeyAccentActivated;
   public final int colorKeyDimple;
+  public final float keyDimpleRadius;
 
   // Label colors
   public final int lockedColor;
@@ -59,6 +67,7 @@ public class Theme
     colorKeyAccent = s.getColor(R.styleable.keyboard_colorKeyAccent, 0);
     colorKeyAccentActivated = s.getColor(R.styleable.keyboard_colorKeyAccentActivated, 0);
     colorKeyDimple = s.getColor(R.styleable.keyboard_colorKeyDimple, 0);
+    keyDimpleRadius = 1.5f * context.getResources().getDisplayMetrics().density;
     colorKeyboard = s.getColor(R.styleable.keyboard_colorKeyboard, 0);
     colorNavBar = s.getColor(R.styleable.keyboard_navigationBarColor, 0);
     isLightNavBar = s.getBoolean(R.styleable.keyboard_windowLightNavigationBar, false);
@@ -129,6 +138,28 @@ public class Theme
     public final Key key_accent_activated;
     public final Paint dimple_paint;
 
+    /** Labels rendered with their outline and shadow, see [label_halo]. */
+    final LruCache<String, Halo> _halos = new LruCache<String, Halo>(HALO_CACHE_BYTES)
+    {
+      @Override
+      protected int sizeOf(String key, Halo h) { return h.bitmap.getByteCount(); }
+
+      @Override
+      protected void entryRemoved(boolean evicted, String key, Halo old_h,
+          Halo new_h)
+      {
+        old_h.evicted = true;
+      }
+    };
+
+    static final int HALO_CACHE_BYTES = 4 * 1024 * 1024;
+
+    /** Dimple patterns already computed, see [dimples]. */
+    final ArrayList<Dimples> _dimples = new ArrayList<Dimples>();
+    final float _dimple_radius;
+    /** Area of a standard key, the number of dimples is relative to it. */
+    final float _dimple_ref_area;
+
     public Computed(Theme theme, Config config, float keyWidth, KeyboardData layout)
     {
       // Make sure that the layout isn't higher than the screen. Take the
@@ -177,10 +208,148 @@ public class Theme
       {
         dimple_paint = null;
       }
+      _dimple_radius = theme.keyDimpleRadius;
+      _dimple_ref_area = keyWidth * row_height;
       indication_paint = init_label_paint(config, null);
       indication_paint.setColor(theme.subLabelColor);
     }
 
+    /** A label rendered with its outline and shadow into a bitmap, so that
+        it can be drawn in a single operation. [tc] provides the paints.
+        Bitmaps are shared by the labels with the same parameters. Returns
+        [null] if the label is empty. The result can be kept until it is
+        [evicted] from the cache. */
+    public Halo label_halo(Key tc, String text, int text_len,
+        boolean special_font, int color, float text_size, Paint.Align align,
+        boolean sublabel)
+    {
+      String cache_key = text.substring(0, text_len) + '\u0000' + special_font
+        + ' ' + color + ' ' + text_size + ' ' + align + ' ' + sublabel;
+      Halo h = _halos.get(cache_key);
+      if (h == null)
+      {
+        h = Halo.render(tc, text, text_len, special_font, color, text_size,
+            align, sublabel);
+        if (h == null)
+          return null;
+        _halos.put(cache_key, h);
+      }
+      return h;
+    }
+
+    /** See [label_halo]. */
+    public static final class Halo
+    {
+      public final Bitmap bitmap;
+      /** Position of the bitmap relative to the point passed to
+          [Canvas.drawText]. */
+      public final float dx;
+      public final float dy;
+      /** Removed from the cache, must not be kept so that the memory used is
+          bounded by the cache size. */
+      public boolean evicted = false;
+
+      Halo(Bitmap b, float dx_, float dy_) { bitmap = b; dx = dx_; dy = dy_; }
+
+      static Halo render(Key tc, String text, int text_len,
+          boolean special_font, int color, float text_size, Paint.Align align,
+          boolean sublabel)
+      {
+        Paint p = sublabel ?
+          tc.sublabel_paint(special_font, color, text_size, align) :
+          tc.label_paint(special_font, color, text_size);
+        Paint op = null;
+        if (tc._outline_enabled)
+          op = sublabel ?
+            tc.sublabel_outline_paint(special_font, OUTLINE_COLOR, text_size, align) :
+            tc.label_outline_paint(special_font, OUTLINE_COLOR, text_size);
+        float w = p.measureText(text, 0, text_len);
+        if (w <= 0.f)
+          return null;
+        Paint.Align a = p.getTextAlign();
+        float left = (a == Paint.Align.LEFT) ? 0.f :
+          (a == Paint.Align.CENTER) ? -w / 2.f : -w;
+        float pad = (float)Math.ceil(text_size * (OUTLINE_WIDTH_RATIO
+              + (tc._shadow_enabled ? tc._shadow_radius_ratio : 0.f))) + 2.f;
+        float ascent = p.ascent();
+        int bw = (int)Math.ceil(w + 2 * pad);
+        int bh = (int)Math.ceil(p.descent() - ascent + 2 * pad);
+        Bitmap b = Bitmap.createBitmap(bw, bh, Bitmap.Config.ARGB_8888);
+        Canvas c = new Canvas(b);
+        float x = pad - left;
+        float y = pad - ascent;
+        if (op != null)
+          c.drawText(text, 0, text_len, x, y, op);
+        c.drawText(text, 0, text_len, x, y, p);
+        return new Halo(b, -x, -y);
+      }
+    }
+
+    /** Outline of the labels, see [Key.label_outline_paint]. */
+    public static final int OUTLINE_COLOR = 0xCC000000;
+    static final float OUTLINE_WIDTH_RATIO = 0.08f;
+
+    /** Scattered dimple dots on the face of a key of the given size, for
+        injection-molding themes. The path is relative to the top-left corner
+        of the key. [2^DIMPLE_VARIANTS_LOG2] patterns are computed for each
+        key size, the one returned depends on [key_index] so that neighbouring
+        keys of the same size don't look the same. Returns [null] if the key
+        is too small. */
+    public Path dimples(float keyW, float keyH, float border_width,
+        int key_index)
+    {
+      // Fibonacci hashing, consecutive indexes get different variants.
+      int variant = (key_index * 0x9E3779B9) >>> (32 - DIMPLE_VARIANTS_LOG2);
+      for (int i = 0; i < _dimples.size(); i++)
+      {
+        Dimples d = _dimples.get(i);
+        if (d.key_w == keyW && d.key_h == keyH
+            && d.border_width == border_width && d.variant == variant)
+          return d.path;
+      }
+      Dimples d = new Dimples(keyW, keyH, border_width, variant,
+          compute_dimples(keyW, keyH, border_width, variant));
+      _dimples.add(d);
+      return d.path;
+    }
+
+    static final int DIMPLE_VARIANTS_LOG2 = 3;
+
+    Path compute_dimples(float keyW, float keyH, float border_width,
+        int variant)
+    {
+      float inset = border_width + 2f;
+      float innerW = keyW - inset * 2;
+      float innerH = keyH - inset * 2;
+      if (innerW <= 0 || innerH <= 0)
+        return null;
+      // Deterministic seed so that the pattern is stable across layouts.
+      Random rng = new Random((Float.floatToIntBits(keyW) * 31L
+            + Float.floatToIntBits(keyH)) * 31L + variant);
+      // Scale dot count by key area relative to a standard key
+      int dotCount = Math.max(4, (int)(20 * (innerW * innerH) / _dimple_ref_area));
+      Path path = new Path();
+      for (int i = 0; i < dotCount; i++)
+      {
+        float dx = inset + rng.nextFloat() * innerW;
+        float dy = inset + rng.nextFloat() * innerH;
+        path.addCircle(dx, dy, _dimple_radius, Path.Direction.CW);
+      }
+      return path;
+    }
+
+    static final class Dimples
+    {
+      public final float key_w;
+      public final float key_h;
+      public final float border_width;
+      public final int variant;
+      public final Path path; // Might be [null]
+
+      public Dimples(float w, float h, float b, int v, Path p)
+      { key_w = w; key_h = h; border_width = b; variant = v; path = p; }
+    }
+
     public static final class Key
     {
       public final Paint bg_paint = new Paint();
@@ -203,6 +372,8 @@ public class Theme
       final boolean _shadow_enabled;
       final float _shadow_radius_ratio;
       final int _shadow_color;
+      /** Borders already computed, see [border]. */
+      final ArrayList<Border> _borders = new ArrayList<Border>();
 
       public Key(Theme theme, Config config, float keyWidth, boolean activated)
       {
@@ -224,10 +395,10 @@ public class Theme
           border_width = activated ? theme.keyBorderWidthActivated : theme.keyBorderWidth;
         }
         bg_paint.setAlpha(activated ? config.keyActivatedOpacity : config.keyOpacity);
-        border_left_paint = init_border_paint(config, border_width, theme.keyBorderColorLeft);
-        border_top_paint = init_border_paint(config, border_width, theme.keyBorderColorTop);
-        border_right_paint = init_border_paint(config, border_width, theme.keyBorderColorRight);
-        border_bottom_paint = init_border_paint(config, border_width, theme.keyBorderColorBottom);
+        border_left_paint = init_border_paint(config, theme.keyBorderColorLeft);
+        border_top_paint = init_border_paint(config, theme.keyBorderColorTop);
+        border_right_paint = init_border_paint(config, theme.keyBorderColorRight);
+        border_bottom_paint = init_border_paint(config, theme.keyBorderColorBottom);
         _label_paint = init_label_paint(config, null);
         _special_label_paint = init_label_paint(config, _key_font);
         _sublabel_paint = init_label_paint(config, null);
@@ -243,6 +414,22 @@ public class Theme
         _shadow_color = 0xBB000000;
       }
 
+      /** The border of a key of the given size, split into its four sides
+          that are filled with the [border_*_paint]. Computed once per key
+          size. */
+      public Border border(float keyW, float keyH)
+      {
+        for (int i = 0; i < _borders.size(); i++)
+        {
+          Border b = _borders.get(i);
+          if (b.key_w == keyW && b.key_h == keyH)
+            return b;
+        }
+        Border b = new Border(keyW, keyH, border_radius, border_width);
+        _borders.add(b);
+        return b;
+      }
+
       public Paint label_paint(boolean special_font, int color, float text_size)
       {
         Paint p = special_font ? _special_label_paint : _label_paint;
@@ -273,7 +460,7 @@ public class Theme
         Paint p = special_font ? _special_label_outline_paint : _label_outline_paint;
         p.setColor(outlineColor);
         p.setTextSize(text_size);
-        p.setStrokeWidth(text_size * 0.08f);
+        p.setStrokeWidth(text_size * OUTLINE_WIDTH_RATIO);
         return p;
       }
 
@@ -283,17 +470,60 @@ public class Theme
         p.setColor(outlineColor);
         p.setTextSize(text_size);
         p.setTextAlign(align);
-        p.setStrokeWidth(text_size * 0.08f);
+        p.setStrokeWidth(text_size * OUTLINE_WIDTH_RATIO);
         return p;
       }
     }
 
-    static Paint init_border_paint(Config config, float border_width, int color)
+    /** The four sides of the border of a key, relative to the top-left
+        corner of the key. The outline of the rounded rectangle is split so
+        that each side can have a different color without clipping the canvas
+        while drawing. Sides overlap at the corners. */
+    public static final class Border
+    {
+      public final float key_w;
+      public final float key_h;
+      public final Path left;
+      public final Path top;
+      public final Path right;
+      public final Path bottom;
+
+      public Border(float keyW, float keyH, float r, float w)
+      {
+        key_w = keyW;
+        key_h = keyH;
+        float padding = w / 2.f;
+        Path frame = new Path();
+        frame.addRoundRect(new RectF(padding, padding, keyW - padding,
+              keyH - padding), r, r, Path.Direction.CW);
+        Paint stroke = new Paint();
+        stroke.setStyle(Paint.Style.STROKE);
+        stroke.setStrokeWidth(w);
+        Path outline = new Path();
+        stroke.getFillPath(frame, outline);
+        float overlap = r - r * 0.85f + w; // sin(45°)
+        left = side(outline, 0, 0, overlap, keyH);
+        right = side(outline, keyW - overlap, 0, keyW, keyH);
+        top = side(outline, 0, 0, keyW, overlap);
+        bottom = side(outline, 0, keyH - overlap, keyW, keyH);
+      }
+
+      static Path side(Path outline, float l, float t, float r, float b)
+      {
+        Path clip = new Path();
+        clip.addRect(l, t, r, b, Path.Direction.CW);
+        Path p = new Path();
+        p.op(outline, clip, Path.Op.INTERSECT);
+        return p;
+      }
+    }
+
+    /** Fill the sides of a [Border]. */
+    static Paint init_border_paint(Config config, int color)
     {
       Paint p = new Paint();
       p.setAlpha(config.keyOpacity);
-      p.setStyle(Paint.Style.STROKE);
-      p.setStrokeWidth(border_width);
+      p.setStyle(Paint.Style.FILL);
       p.setColor(color);
       return p;
     }
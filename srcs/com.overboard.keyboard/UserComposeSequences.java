@@ -0,0 +1,406 @@
+package com.overboard.keyboard;
+
+import android.content.Context;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Compose sequences written by the user in XCompose files, in the "compose"
+    directory of the app's external files directory. They are merged with the
+    built-in sequences into the format described in [ComposeKey], where they
+    take priority. The result is cached to avoid parsing the files again on
+    the next start. Sequences that don't start with [<Multi_key>] are ignored.
+    Characters can be written as [<U00e9>], as a single character or using
+    the names of ASCII characters or names defined in the file. */
+public final class UserComposeSequences
+{
+  /** Load the user's sequences and make [ComposeKey] use them. Doesn't
+      block. */
+  public static void load_async(Context ctx)
+  {
+    final File dir = ctx.getExternalFilesDir(DIR_NAME);
+    final File cache = new File(ctx.getCacheDir(), CACHE_NAME);
+    IoExecutor.get().execute(() -> {
+      try
+      {
+        ComposeKey.Compiled c = load(dir, cache);
+        if (c != null)
+          ComposeKey.set_compiled(c);
+      }
+      catch (Exception e)
+      {
+        Logs.exn("UserComposeSequences.load", e);
+      }
+    });
+  }
+
+  /** Private */
+
+  static final String DIR_NAME = "compose";
+  static final String CACHE_NAME = "user_compose.bin";
+  static final int CACHE_VERSION = 2;
+
+  /** Returns [null] if there are no sequence files. */
+  static ComposeKey.Compiled load(File dir, File cache) throws IOException
+  {
+    File[] files = (dir == null) ? null : dir.listFiles();
+    if (files == null || files.length == 0)
+    {
+      cache.delete();
+      return null;
+    }
+    Arrays.sort(files);
+    String key = cache_key(files);
+    ComposeKey.Compiled c = read_cache(cache, key);
+    if (c != null)
+      return c;
+    Map<String, String> seqs = new TreeMap<String, String>();
+    for (File f : files)
+    {
+      if (!f.isFile())
+        continue;
+      Reader inp = new InputStreamReader(new FileInputStream(f), "UTF-8");
+      try { parse(inp, seqs); }
+      finally { inp.close(); }
+    }
+    c = merge(ComposeKeyData.states, ComposeKeyData.edges,
+        ComposeKeyData.compose, seqs);
+    write_cache(cache, key, c);
+    return c;
+  }
+
+  /** Identifies the sequence files and the built-in sequences. */
+  static String cache_key(File[] files)
+  {
+    StringBuilder b = new StringBuilder();
+    b.append(Arrays.hashCode(ComposeKeyData.states)).append(' ')
+      .append(Arrays.hashCode(ComposeKeyData.edges));
+    for (File f : files)
+      b.append('\n').append(f.getName()).append(' ').append(f.length())
+        .append(' ').append(f.lastModified());
+    return b.toString();
+  }
+
+  static final Pattern LINE_RE = Pattern.compile(
+      "^((?:\\s*<[^>]+>)+)\\s*:\\s*\"((?:[^\"\\\\]+|\\\\.)+)\"\\s*(\\S+)?\\s*(?:#.*)?$");
+  static final Pattern CHAR_RE =
+    Pattern.compile("\\s*<(?:U([a-fA-F0-9]{4,6})|([^>]+))>");
+  static final String MULTI_KEY = "<Multi_key>";
+
+  /** Add the sequences found in an XCompose file to [dst], which maps
+      sequences without the initial [<Multi_key>] to their result. Lines that
+      cannot be parsed are ignored. */
+  static void parse(Reader r, Map<String, String> dst) throws IOException
+  {
+    List<String> lines = new ArrayList<String>();
+    BufferedReader inp = new BufferedReader(r);
+    String line;
+    while ((line = inp.readLine()) != null)
+      lines.add(line.trim());
+    // Names can be given to characters in the file.
+    Map<String, String> names = new HashMap<String, String>(ASCII_NAMES);
+    for (String l : lines)
+    {
+      Matcher m = LINE_RE.matcher(l);
+      if (m.matches() && m.group(3) != null)
+        names.put(m.group(3), unescape(m.group(2)));
+    }
+    for (String l : lines)
+    {
+      if (!l.startsWith(MULTI_KEY))
+        continue;
+      Matcher m = LINE_RE.matcher(l.substring(MULTI_KEY.length()));
+      if (!m.matches())
+        continue;
+      String seq = parse_seq(m.group(1), names);
+      if (seq != null)
+        dst.put(seq, unescape(m.group(2)));
+    }
+  }
+
+  /** Returns [null] if a character is unknown or doesn't fit in a [char]. */
+  static String parse_seq(String def, Map<String, String> names)
+  {
+    StringBuilder b = new StringBuilder();
+    Matcher m = CHAR_RE.matcher(def);
+    while (m.find())
+    {
+      String c;
+      if (m.group(1) != null)
+      {
+        int cp = Integer.parseInt(m.group(1), 16);
+        if (cp > 0xFFFF)
+          return null;
+        c = String.valueOf((char)cp);
+      }
+      else if (m.group(2).length() == 1)
+        c = m.group(2);
+      else
+        c = names.get(m.group(2));
+      if (c == null || c.length() != 1)
+        return null;
+      b.append(c);
+    }
+    return (b.length() == 0) ? null : b.toString();
+  }
+
+  static String unescape(String s)
+  {
+    if (s.indexOf('\\') < 0)
+      return s;
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length())
+        c = s.charAt(++i);
+      b.append(c);
+    }
+    return b.toString();
+  }
+
+  /** Merge [seqs] into the sequences of state [entry] and add the result at
+      the end of the arrays. Other states are not changed. */
+  static ComposeKey.Compiled merge(char[] states, char[] edges, int entry,
+      Map<String, String> seqs) throws IOException
+  {
+    TreeMap<Character, Object> root = decode(states, edges, entry);
+    for (Map.Entry<String, String> s : seqs.entrySet())
+      add_sequence(root, s.getKey(), "=" + s.getValue());
+    Encoder enc = new Encoder(states, edges);
+    int target = enc.add_tree(root);
+    if (enc.size > 0xFFFF)
+      throw new IOException("Too many compose sequences");
+    return new ComposeKey.Compiled(Arrays.copyOf(enc.states, enc.size),
+        Arrays.copyOf(enc.edges, enc.size), entry, target);
+  }
+
+  /** Nodes are maps from characters to nodes or to the result of the
+      sequence. Results that must be looked up with [KeyValue.getKeyByName]
+      are prefixed with [':'], like in [srcs/compose/compile.py]. Results that
+      are typed as is, which includes every user's sequence, are prefixed with
+      ['=']. */
+  static TreeMap<Character, Object> decode(char[] states, char[] edges,
+      int s)
+  {
+    TreeMap<Character, Object> node = new TreeMap<Character, Object>();
+    for (int t = s + 1; t < s + edges[s]; t++)
+    {
+      int next = edges[t];
+      char header = states[next];
+      Object v;
+      if (header == 0)
+        v = decode(states, edges, next);
+      else if (header == 0xFFFF && edges[next] > 1 && states[next + 1] == 0)
+        v = "=" + new String(states, next + 2, edges[next] - 2);
+      else if (header == 0xFFFF)
+        v = ":" + new String(states, next + 1, edges[next] - 1);
+      else
+        v = "=" + header;
+      node.put(states[t], v);
+    }
+    return node;
+  }
+
+  /** The new sequence replaces the sequences that it conflicts with. */
+  @SuppressWarnings("unchecked")
+  static void add_sequence(TreeMap<Character, Object> root, String seq,
+      String result)
+  {
+    TreeMap<Character, Object> node = root;
+    int last = seq.length() - 1;
+    for (int i = 0; i < last; i++)
+    {
+      Object next = node.get(seq.charAt(i));
+      if (!(next instanceof TreeMap))
+      {
+        next = new TreeMap<Character, Object>();
+        node.put(seq.charAt(i), next);
+      }
+      node = (TreeMap<Character, Object>)next;
+    }
+    node.put(seq.charAt(last), result);
+  }
+
+  /** Append states to a copy of existing arrays. */
+  static final class Encoder
+  {
+    char[] states;
+    char[] edges;
+    int size;
+    /** Deduplicate final states. */
+    final HashMap<String, Integer> _leafs = new HashMap<String, Integer>();
+
+    public Encoder(char[] states_, char[] edges_)
+    {
+      size = states_.length;
+      states = Arrays.copyOf(states_, size * 2);
+      edges = Arrays.copyOf(edges_, size * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    public int add_tree(TreeMap<Character, Object> t)
+    {
+      int s = alloc(t.size() + 1);
+      states[s] = 0;
+      edges[s] = (char)(t.size() + 1);
+      int i = s + 1;
+      for (Map.Entry<Character, Object> e : t.entrySet())
+      {
+        Object v = e.getValue();
+        int next = (v instanceof String) ? add_leaf((String)v) :
+          add_tree((TreeMap<Character, Object>)v);
+        states[i] = e.getKey();
+        edges[i] = (char)next;
+        i++;
+      }
+      return s;
+    }
+
+    /** Same encoding as [srcs/compose/compile.py]. [r] is prefixed with
+        [':'] or ['='], see [decode]. Text that isn't a single character is
+        stored in a literal string final state, see [ComposeKey]. */
+    int add_leaf(String r)
+    {
+      Integer prev = _leafs.get(r);
+      if (prev != null)
+        return prev;
+      int s;
+      if (r.charAt(0) == '=' && r.length() == 2 && r.charAt(1) > 0
+          && r.charAt(1) <= 32767) // Character final state
+      {
+        s = alloc(1);
+        states[s] = r.charAt(1);
+        edges[s] = 1;
+      }
+      else // String final state
+      {
+        String str = (r.charAt(0) == ':') ? r.substring(1)
+          : '\u0000' + r.substring(1);
+        s = alloc(str.length() + 1);
+        states[s] = 0xFFFF;
+        edges[s] = (char)(str.length() + 1);
+        for (int i = 0; i < str.length(); i++)
+        {
+          states[s + 1 + i] = str.charAt(i);
+          edges[s + 1 + i] = 0;
+        }
+      }
+      _leafs.put(r, s);
+      return s;
+    }
+
+    int alloc(int n)
+    {
+      if (size + n > states.length)
+      {
+        int len = Math.max(states.length * 2, size + n);
+        states = Arrays.copyOf(states, len);
+        edges = Arrays.copyOf(edges, len);
+      }
+      int s = size;
+      size += n;
+      return s;
+    }
+  }
+
+  /** Returns [null] if the cache doesn't exist or is not for [key]. */
+  static ComposeKey.Compiled read_cache(File f, String key) throws IOException
+  {
+    DataInputStream inp;
+    try
+    {
+      inp = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(f)));
+    }
+    catch (FileNotFoundException e)
+    {
+      return null;
+    }
+    try
+    {
+      if (inp.readInt() != CACHE_VERSION || !inp.readUTF().equals(key))
+        return null;
+      int entry = inp.readInt();
+      int target = inp.readInt();
+      char[] states = new char[inp.readInt()];
+      char[] edges = new char[states.length];
+      for (int i = 0; i < states.length; i++)
+        states[i] = inp.readChar();
+      for (int i = 0; i < edges.length; i++)
+        edges[i] = inp.readChar();
+      return new ComposeKey.Compiled(states, edges, entry, target);
+    }
+    catch (IOException e)
+    {
+      return null; // Truncated or corrupted
+    }
+    finally
+    {
+      inp.close();
+    }
+  }
+
+  static void write_cache(File f, String key, ComposeKey.Compiled c)
+    throws IOException
+  {
+    File tmp = new File(f.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tmp)));
+    try
+    {
+      out.writeInt(CACHE_VERSION);
+      out.writeUTF(key);
+      out.writeInt(c.entry);
+      out.writeInt(c.entry_target);
+      out.writeInt(c.states.length);
+      for (char s : c.states)
+        out.writeChar(s);
+      for (char e : c.edges)
+        out.writeChar(e);
+    }
+    finally
+    {
+      out.close();
+    }
+    if (!tmp.renameTo(f))
+      throw new IOException("Cannot replace " + f);
+  }
+
+  /** Names of the ASCII characters in XCompose files. */
+  static final Map<String, String> ASCII_NAMES = new HashMap<String, String>();
+
+  static
+  {
+    String[] names = new String[]{
+      "space", " ", "exclam", "!", "quotedbl", "\"", "numbersign", "#",
+      "dollar", "$", "percent", "%", "ampersand", "&", "apostrophe", "'",
+      "parenleft", "(", "parenright", ")", "asterisk", "*", "plus", "+",
+      "comma", ",", "minus", "-", "period", ".", "slash", "/", "colon", ":",
+      "semicolon", ";", "less", "<", "equal", "=", "greater", ">",
+      "question", "?", "at", "@", "bracketleft", "[", "backslash", "\\",
+      "bracketright", "]", "asciicircum", "^", "underscore", "_",
+      "grave", "`", "braceleft", "{", "bar", "|", "braceright", "}",
+      "asciitilde", "~"
+    };
+    for (int i = 0; i + 1 < names.length; i += 2)
+      ASCII_NAMES.put(names[i], names[i + 1]);
+  }
+}
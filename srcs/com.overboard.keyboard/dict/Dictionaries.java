@@ -1,20 +1,23 @@
 package com.overboard.keyboard.dict;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.util.LruCache;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.Executor;
 import juloo.cdict.Cdict;
+import com.overboard.keyboard.IoExecutor;
 import com.overboard.keyboard.Logs;
-import com.overboard.keyboard.Utils;
 
 /** Manage and load installed dictionaries. */
 public final class Dictionaries
@@ -22,10 +25,21 @@ public final class Dictionaries
   public static Dictionaries instance(Context ctx)
   {
     if (_instance == null)
-      _instance = new Dictionaries(ctx);
+      _instance = new Dictionaries(ctx, default_cache_budget(ctx));
     return _instance;
   }
 
+  /** Budget of the loaded dictionaries cache for this device, in bytes. See
+      [DEFAULT_CACHE_BUDGET]. */
+  public static int default_cache_budget(Context ctx)
+  {
+    ActivityManager am =
+      (ActivityManager)ctx.getSystemService(Context.ACTIVITY_SERVICE);
+    if (am != null && am.isLowRamDevice())
+      return DEFAULT_CACHE_BUDGET / 2;
+    return DEFAULT_CACHE_BUDGET;
+  }
+
   /** Util for finding a dictionary by name. Returns [null] if not found. */
   public static Cdict find_by_name(Cdict[] dicts, String name)
   {
@@ -36,24 +50,71 @@ public final class Dictionaries
   }
 
   /** Load an installed dictionary. Return [null] if the requested dictionary
-      is not installed or the dictionary couldn't be loaded. */
+      is not installed or the dictionary couldn't be loaded. The returned
+      dictionary becomes the current dictionary, which is kept loaded even if
+      it doesn't fit in the cache. */
   public Cdict[] load(String dict_name)
   {
-    if (_loaded_dictionaries.containsKey(dict_name))
-      return _loaded_dictionaries.get(dict_name);
-    Cdict[] dict = load_uncached(dict_name);
-    _loaded_dictionaries.put(dict_name, dict);
-    return dict;
+    return load(dict_name, true);
+  }
+
+  /** Whether [load] would return immediately. */
+  public synchronized boolean is_loaded(String dict_name)
+  {
+    return !_installed_dictionaries.contains(dict_name)
+      || get_cached(dict_name) != null;
+  }
+
+  /** Unload dictionaries in response to
+      [ComponentCallbacks2.onTrimMemory(level)]. The current dictionary is
+      kept. */
+  public synchronized void trim_memory(int level)
+  {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+      _loaded_dictionaries.evictAll();
+    else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+      _loaded_dictionaries.trimToSize(_loaded_dictionaries.maxSize() / 2);
+  }
+
+  /** Load dictionaries on a background thread so that later calls to [load]
+      are fast. This doesn't change the current dictionary. */
+  public void preload(Collection<String> dict_names)
+  {
+    for (final String dict_name : dict_names)
+      _loader.execute(() -> load(dict_name, false));
+  }
+
+  /** Load a dictionary on a background thread. [callback] is called on the
+      thread of [handler] with the same value [load] would return. */
+  public void load_async(final String dict_name, final Handler handler,
+      final LoadCallback callback)
+  {
+    _loader.execute(() -> {
+      final Cdict[] dicts = load(dict_name);
+      handler.post(() -> callback.loaded(dict_name, dicts));
+    });
+  }
+
+  public interface LoadCallback
+  {
+    public void loaded(String dict_name, Cdict[] dicts);
   }
 
   public Set<String> get_installed() { return _installed_dictionaries; }
 
   public void install(String dict_name, byte[] data) throws IOException
   {
-    FileOutputStream outp = _context.openFileOutput(dict_file_name(dict_name),
+    // Write to a temporary file and rename it in place. A previously loaded
+    // version of the dictionary is mapped into memory and must not be
+    // modified.
+    String tmp_name = dict_file_name(dict_name) + ".tmp";
+    FileOutputStream outp = _context.openFileOutput(tmp_name,
         Context.MODE_PRIVATE);
     outp.write(data);
     outp.close();
+    if (!_context.getFileStreamPath(tmp_name)
+        .renameTo(get_install_location(dict_name)))
+      throw new IOException("Cannot install dictionary " + dict_name);
     set_installed(dict_name);
   }
 
@@ -66,18 +127,22 @@ public final class Dictionaries
 
   /** Declare a dictionary as installed. A dictionary file must exist at the
       path returned by [get_install_location(dict_name)]. */
-  public void set_installed(String dict_name)
+  public synchronized void set_installed(String dict_name)
   {
     _installed_dictionaries.add(dict_name);
     _loaded_dictionaries.remove(dict_name);
+    unset_current(dict_name);
+    _generation++;
     save();
   }
 
-  public void uninstall(String dict_name)
+  public synchronized void uninstall(String dict_name)
   {
     _context.deleteFile(dict_file_name(dict_name));
     _installed_dictionaries.remove(dict_name);
     _loaded_dictionaries.remove(dict_name);
+    unset_current(dict_name);
+    _generation++;
     save();
   }
 
@@ -87,17 +152,48 @@ public final class Dictionaries
   Set<String> _installed_dictionaries;
   /** Might be 'null' when safe storage is not available. */
   SharedPreferences _shared_prefs;
-  Map<String, Cdict[]> _loaded_dictionaries;
+  /** Weighted by the size of the dictionary files, which are mapped into
+      memory. */
+  LruCache<String, Loaded> _loaded_dictionaries;
+  /** Incremented when a dictionary is installed or uninstalled. A dictionary
+      loaded across a change is not cached. */
+  int _generation = 0;
+  /** The dictionary last returned by [load], kept outside of the cache so
+      that it's not unloaded while in use, even if it is bigger than the cache
+      budget. */
+  String _current_name = null;
+  Loaded _current = null;
+  /** Dictionaries are loaded in the background on this executor. */
+  final Executor _loader = IoExecutor.get();
 
   static Dictionaries _instance = null;
 
   static final String PREF_INSTALLED_DICTS = "installed";
 
-  Dictionaries(Context ctx)
+  /** Large enough for a few dictionaries of the biggest languages. Halved on
+      low RAM devices. */
+  static final int DEFAULT_CACHE_BUDGET = 32 * 1024 * 1024;
+
+  static final class Loaded
+  {
+    public final Cdict[] dicts;
+    /** Size in bytes. Must not change while in the cache. */
+    public final int size;
+
+    public Loaded(Cdict[] d, int s) { dicts = d; size = Math.max(s, 1); }
+  }
+
+  /** [cache_budget] is the maximum size in bytes of the dictionaries kept
+      loaded, not counting the current dictionary. */
+  Dictionaries(Context ctx, int cache_budget)
   {
     _context = ctx;
     _installed_dictionaries = new HashSet();
-    _loaded_dictionaries = new TreeMap<String, Cdict[]>();
+    _loaded_dictionaries = new LruCache<String, Loaded>(cache_budget)
+    {
+      @Override
+      protected int sizeOf(String dict_name, Loaded l) { return l.size; }
+    };
     load_prefs();
   }
 
@@ -118,16 +214,73 @@ public final class Dictionaries
     }
   }
 
-  Cdict[] load_uncached(String dict_name)
+  Cdict[] load(String dict_name, boolean set_current)
   {
-    if (!_installed_dictionaries.contains(dict_name))
+    int generation;
+    synchronized (this)
+    {
+      Loaded cached = get_cached(dict_name);
+      if (cached != null)
+        return (set_current) ? set_current(dict_name, cached) : cached.dicts;
+      if (!_installed_dictionaries.contains(dict_name))
+        return null;
+      generation = _generation;
+    }
+    // Mapping and parsing the file is done without holding the lock so that
+    // [is_loaded] and [load] for cached dictionaries don't wait.
+    Cdict[] dicts = load_uncached(dict_name);
+    // Failures are not cached.
+    if (dicts == null)
       return null;
+    synchronized (this)
+    {
+      // The dictionary was installed again or uninstalled in the meantime,
+      // the loaded version must not be cached.
+      if (generation != _generation)
+        return _installed_dictionaries.contains(dict_name) ? dicts : null;
+      // Another thread loaded the same dictionary concurrently.
+      Loaded loaded = get_cached(dict_name);
+      if (loaded == null)
+      {
+        loaded = new Loaded(dicts,
+            (int)get_install_location(dict_name).length());
+        _loaded_dictionaries.put(dict_name, loaded);
+      }
+      return (set_current) ? set_current(dict_name, loaded) : loaded.dicts;
+    }
+  }
+
+  /** Must be called with the lock held. */
+  Loaded get_cached(String dict_name)
+  {
+    if (dict_name.equals(_current_name))
+      return _current;
+    return _loaded_dictionaries.get(dict_name);
+  }
+
+  /** Must be called with the lock held. */
+  Cdict[] set_current(String dict_name, Loaded l)
+  {
+    _current_name = dict_name;
+    _current = l;
+    return l.dicts;
+  }
+
+  /** Must be called with the lock held. */
+  void unset_current(String dict_name)
+  {
+    if (!dict_name.equals(_current_name))
+      return;
+    _current_name = null;
+    _current = null;
+  }
+
+  /** Called without holding the lock. */
+  Cdict[] load_uncached(String dict_name)
+  {
     try
     {
-      FileInputStream inp = _context.openFileInput(dict_file_name(dict_name));
-      byte[] data = Utils.read_all_bytes(inp);
-      inp.close();
-      return Cdict.of_bytes(data);
+      return Cdict.of_file(get_install_location(dict_name).getPath());
     }
     catch (IOException e) { return null; }
     catch (Cdict.ConstructionError e) { return null; }
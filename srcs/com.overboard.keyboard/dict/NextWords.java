@@ -0,0 +1,72 @@
+package com.overboard.keyboard.dict;
+
+import android.content.Context;
+import com.overboard.keyboard.IoExecutor;
+
+/** Predict the next word from the one or two previous words using bigrams and
+    trigrams learned from the user. N-grams are stored in a [UserDictionary]
+    as the context words separated by a space followed by [SEP] and the next
+    word. Looking up the words that followed a context is then a prefix
+    lookup. [SEP] differs from the space to keep bigrams and trigrams apart. */
+public final class NextWords
+{
+  public static NextWords instance(Context ctx)
+  {
+    if (_instance == null)
+    {
+      UserDictionary ngrams = new UserDictionary(
+          ctx.getFileStreamPath(FILE_NAME), IoExecutor.get());
+      ngrams.load_async();
+      _instance = new NextWords(ngrams);
+    }
+    return _instance;
+  }
+
+  /** Record that [word] followed [prev1], which followed [prev2]. [prev1] and
+      [prev2] can be [null] if unknown. Doesn't block. */
+  public void add(String prev2, String prev1, String word)
+  {
+    if (prev1 == null)
+      return;
+    _ngrams.add(prev1 + SEP + word, 1);
+    if (prev2 != null)
+      _ngrams.add(prev2 + " " + prev1 + SEP + word, 1);
+  }
+
+  /** See [UserDictionary.flush]. */
+  public void flush()
+  {
+    _ngrams.flush();
+  }
+
+  /** Write to [dst_words] and [dst_counts] the words starting with [prefix]
+      that most often followed the context [prev2 prev1]. [prefix] is empty
+      to predict the next word. Use [trigram] to choose whether to look at the
+      two previous words or only at [prev1]. Return the number of words
+      written. */
+  public int predict(String prev2, String prev1, boolean trigram,
+      String prefix, String[] dst_words, int[] dst_counts)
+  {
+    if (prev1 == null || (trigram && prev2 == null))
+      return 0;
+    String context = (trigram ? prev2 + " " + prev1 : prev1) + SEP;
+    int n = _ngrams.completions(context + prefix, dst_words, dst_counts);
+    for (int i = 0; i < n; i++)
+      dst_words[i] = dst_words[i].substring(context.length());
+    return n;
+  }
+
+  /** Private */
+
+  final UserDictionary _ngrams;
+
+  static NextWords _instance = null;
+
+  static final String FILE_NAME = "user_ngrams.log";
+  static final char SEP = '\u001F';
+
+  NextWords(UserDictionary ngrams)
+  {
+    _ngrams = ngrams;
+  }
+}
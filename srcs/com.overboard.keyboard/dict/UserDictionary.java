@@ -0,0 +1,263 @@
+package com.overboard.keyboard.dict;
+
+import android.content.Context;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import com.overboard.keyboard.IoExecutor;
+import com.overboard.keyboard.Logs;
+
+/** Words learned from the user with the number of times they were used. The
+    words are kept sorted in memory for prefix lookups and are stored in an
+    append-only log, one [count TAB word] entry per line. The log is compacted
+    when it contains too many redundant entries. New entries are buffered and
+    written by [flush]. All the I/O is done on a background thread. Lookups
+    can be done from any thread. */
+public final class UserDictionary
+{
+  public static UserDictionary instance(Context ctx)
+  {
+    if (_instance == null)
+    {
+      _instance = new UserDictionary(ctx.getFileStreamPath(FILE_NAME),
+          IoExecutor.get());
+      _instance.load_async();
+    }
+    return _instance;
+  }
+
+  /** A word is suggested once it has been used at least this many times. */
+  public static final int MIN_COUNT = 2;
+
+  /** Record that [word] has been used [count] more times. Doesn't block. */
+  public void add(final String word, final int count)
+  {
+    if (word.length() == 0 || word.indexOf('\t') >= 0
+        || word.indexOf('\n') >= 0)
+      return;
+    _io.execute(() -> {
+      synchronized (this) { add_count(_counts, word, count); }
+      add_count(_unsaved, word, count);
+      if (_unsaved.size() >= MAX_UNSAVED && !_read_only)
+        save();
+    });
+  }
+
+  /** Write the words learned since the last call to the storage. Doesn't
+      block. Call when the user stops typing, for example from
+      [onFinishInput]. */
+  public void flush()
+  {
+    _io.execute(() -> save());
+  }
+
+  /** Number of times [word] has been used. */
+  public synchronized int count(String word)
+  {
+    Integer c = _counts.get(word);
+    return (c == null) ? 0 : c;
+  }
+
+  /** Write to [dst_words] and [dst_counts] the most used words that start
+      with [prefix], including [prefix] itself, most used first. Only words
+      used at least [MIN_COUNT] times are returned. Return the number of words
+      written, which is at most the length of [dst_words]. */
+  public synchronized int completions(String prefix, String[] dst_words,
+      int[] dst_counts)
+  {
+    int n = 0;
+    for (Map.Entry<String, Integer> e : _counts.subMap(prefix, true,
+          prefix + Character.MAX_VALUE, false).entrySet())
+    {
+      int c = e.getValue();
+      if (c < MIN_COUNT)
+        continue;
+      // Insertion in decreasing count order.
+      int i = n;
+      while (i > 0 && dst_counts[i - 1] < c)
+        i--;
+      if (i >= dst_words.length)
+        continue;
+      int last = Math.min(n, dst_words.length - 1);
+      System.arraycopy(dst_words, i, dst_words, i + 1, last - i);
+      System.arraycopy(dst_counts, i, dst_counts, i + 1, last - i);
+      dst_words[i] = e.getKey();
+      dst_counts[i] = c;
+      n = last + 1;
+    }
+    return n;
+  }
+
+  /** Convert a count into a frequency comparable to the dictionary
+      frequencies, which range from 0 to 15. */
+  public static int freq_of_count(int count)
+  {
+    int log2 = 31 - Integer.numberOfLeadingZeros(Math.max(count, 1));
+    return Math.min(15, LEARNED_FREQ + log2);
+  }
+
+  /** Private */
+
+  final File _file;
+  final Executor _io;
+  /** The entries of the log and [_unsaved]. */
+  TreeMap<String, Integer> _counts = new TreeMap<String, Integer>();
+  /** Number of entries in the log. Only accessed from [_io]. */
+  int _log_entries = 0;
+  /** Set if the log couldn't be read, for example when the storage is not
+      accessible before the device is unlocked. Words are then only learned
+      in memory. Only accessed from [_io]. */
+  boolean _read_only = false;
+  /** Words learned since the last [flush] or while [_read_only], which are
+      not in the log yet. Only accessed from [_io]. */
+  final TreeMap<String, Integer> _unsaved = new TreeMap<String, Integer>();
+
+  static UserDictionary _instance = null;
+
+  static final String FILE_NAME = "user_words.log";
+  /** Frequency of a word used once. Each doubling of the count adds one, a
+      word used [MIN_COUNT] times has frequency [LEARNED_FREQ + 1]. */
+  static final int LEARNED_FREQ = 8;
+  /** When compacting, words used only once are dropped if there are more
+      words than this. */
+  static final int MAX_WORDS = 20000;
+  /** The entries are written without waiting for [flush] once there are this
+      many different words to write. */
+  static final int MAX_UNSAVED = 64;
+
+  UserDictionary(File file, Executor io)
+  {
+    _file = file;
+    _io = io;
+  }
+
+  void load_async()
+  {
+    _io.execute(() -> load());
+  }
+
+  /** Replace [_counts] with the content of the log and [_unsaved]. A log
+      that can't be read entirely sets [_read_only]. */
+  void load()
+  {
+    TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+    int entries = 0;
+    _read_only = false;
+    try
+    {
+      BufferedReader inp = new BufferedReader(new InputStreamReader(
+            new FileInputStream(_file), "UTF-8"));
+      try
+      {
+        String line;
+        while ((line = inp.readLine()) != null)
+        {
+          int tab = line.indexOf('\t');
+          if (tab <= 0)
+            continue;
+          try
+          {
+            int count = Integer.parseInt(line.substring(0, tab));
+            add_count(counts, line.substring(tab + 1), count);
+            entries++;
+          }
+          catch (NumberFormatException e) {}
+        }
+      }
+      finally
+      {
+        inp.close();
+      }
+    }
+    catch (FileNotFoundException e) {} // Nothing learned yet.
+    catch (Exception e)
+    {
+      _read_only = true;
+      Logs.exn("UserDictionary.load", e);
+    }
+    for (Map.Entry<String, Integer> e : _unsaved.entrySet())
+      add_count(counts, e.getKey(), e.getValue());
+    synchronized (this) { _counts = counts; }
+    _log_entries = entries;
+  }
+
+  static void add_count(Map<String, Integer> counts, String word, int count)
+  {
+    Integer prev = counts.get(word);
+    counts.put(word, (prev == null) ? count : prev + count);
+  }
+
+  /** Append [_unsaved] to the log. Called on [_io]. */
+  void save()
+  {
+    if (_unsaved.isEmpty())
+      return;
+    if (_read_only)
+    {
+      // The storage might have become accessible. Reloading replaces the
+      // counts, what was read by the failed load is not counted twice.
+      load();
+      if (_read_only)
+        return;
+    }
+    try
+    {
+      Writer out = new OutputStreamWriter(new FileOutputStream(_file, true),
+          "UTF-8");
+      for (Map.Entry<String, Integer> e : _unsaved.entrySet())
+        out.write(e.getValue() + "\t" + e.getKey() + "\n");
+      out.close();
+      _log_entries += _unsaved.size();
+      _unsaved.clear();
+      int words;
+      synchronized (this) { words = _counts.size(); }
+      if (_log_entries > words * 2 + 100)
+        compact();
+    }
+    catch (IOException e)
+    {
+      Logs.exn("UserDictionary.save", e);
+    }
+  }
+
+  /** Rewrite the log with a single entry per word. Called on [_io]. */
+  void compact() throws IOException
+  {
+    File tmp = new File(_file.getPath() + ".tmp");
+    Writer out = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+    int entries = 0;
+    try
+    {
+      synchronized (this)
+      {
+        if (_counts.size() > MAX_WORDS)
+        {
+          Iterator<Integer> it = _counts.values().iterator();
+          while (it.hasNext())
+            if (it.next() < MIN_COUNT)
+              it.remove();
+        }
+        for (Map.Entry<String, Integer> e : _counts.entrySet())
+          out.write(e.getValue() + "\t" + e.getKey() + "\n");
+        entries = _counts.size();
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+    if (!tmp.renameTo(_file))
+      throw new IOException("Cannot replace " + _file);
+    _log_entries = entries;
+  }
+}
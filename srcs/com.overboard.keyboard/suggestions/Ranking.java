@@ -0,0 +1,94 @@
+package com.overboard.keyboard.suggestions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Select the best [n] candidates out of the exact match, prefix completions
+    and close matches found in the dictionary. Candidates are scored using
+    their frequency and an edit cost. Doesn't depend on Android or on the
+    dictionary to be unit-testable. Can be reused with [clear()]. */
+public final class Ranking
+{
+  /** How a candidate was matched. Same values as in [Cdict.Candidates]. */
+  public static final int EXACT = 0;
+  public static final int PREFIX = 1;
+  public static final int DISTANCE = 2;
+
+  /** Cost of completing a word, compared to frequencies that range from 0 to
+      15. A common completion ranks higher than a rare correction. */
+  static final int PREFIX_COST = 2;
+  /** Cost of each edit for a close match. */
+  static final int DISTANCE_COST = 4;
+
+  /** Candidates sorted by decreasing score. Only the first [_count] are
+      set. */
+  final String[] _words;
+  final int[] _scores;
+  int _count = 0;
+
+  public Ranking(int n)
+  {
+    _words = new String[n];
+    _scores = new int[n];
+  }
+
+  public void clear()
+  {
+    _count = 0;
+  }
+
+  /** [dist] is the edit distance of a [DISTANCE] candidate and is ignored
+      otherwise. Adding a word that is already ranked keeps the best score.
+      Candidates with the same score stay in the order they are added. */
+  public void add(String word, int freq, int kind, int dist)
+  {
+    int score = score(freq, kind, dist);
+    for (int i = 0; i < _count; i++)
+      if (_words[i].equals(word))
+      {
+        if (_scores[i] >= score)
+          return;
+        remove(i);
+        break;
+      }
+    int i = _count;
+    while (i > 0 && _scores[i - 1] < score)
+      i--;
+    if (i >= _words.length)
+      return;
+    int last = Math.min(_count, _words.length - 1);
+    System.arraycopy(_words, i, _words, i + 1, last - i);
+    System.arraycopy(_scores, i, _scores, i + 1, last - i);
+    _words[i] = word;
+    _scores[i] = score;
+    _count = last + 1;
+  }
+
+  /** The best candidates, best first. */
+  public List<String> top()
+  {
+    List<String> ws = new ArrayList<String>(_count);
+    for (int i = 0; i < _count; i++)
+      ws.add(_words[i]);
+    return ws;
+  }
+
+  /** The exact match always ranks first so that the space bar never replaces
+      a correctly spelled word. */
+  static int score(int freq, int kind, int dist)
+  {
+    switch (kind)
+    {
+      case EXACT: return Integer.MAX_VALUE;
+      case PREFIX: return freq - PREFIX_COST;
+      default: return freq - DISTANCE_COST * dist;
+    }
+  }
+
+  void remove(int i)
+  {
+    _count--;
+    System.arraycopy(_words, i + 1, _words, i, _count - i);
+    System.arraycopy(_scores, i + 1, _scores, i, _count - i);
+  }
+}
@@ -1,63 +1,321 @@
 package com.overboard.keyboard.suggestions;
 
+import android.os.Handler;
+import android.os.HandlerThread;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import juloo.cdict.Cdict;
 import com.overboard.keyboard.dict.Dictionaries;
+import com.overboard.keyboard.dict.NextWords;
+import com.overboard.keyboard.dict.UserDictionary;
 import com.overboard.keyboard.Config;
 
 /** Keep track of the word being typed and provide suggestions for
-    [CandidatesView]. */
+    [CandidatesView]. Dictionary lookups are done on a worker thread and the
+    results are posted back to the main thread. */
 public final class Suggestions
 {
   Callback _callback;
   Config _config;
+  /** Results are delivered to the main thread through [_main]. */
+  Executor _main;
+  /** Might be [null] if [_worker] is not backed by a [HandlerThread]. */
+  HandlerThread _worker_thread = null;
+  Executor _worker;
 
-  /** The suggestion displayed at the center of the candidates view and entered
-      by the space bar. */
-  public String best_suggestion = null;
+  /** The query that the suggestions should match. Results computed for an
+      older query are dropped. Only accessed from the main thread. */
+  Query _current_query = null;
+  /** The query whose results are currently shown. Differs from
+      [_current_query] while the results are being computed. Only accessed
+      from the main thread. */
+  Query _shown_query = null;
 
-  public Suggestions(Callback c, Config conf)
+  /** The last two words typed, [_prev_word] being the last. Used to predict
+      the next word. Might be [null]. Only accessed from the main thread. */
+  String _prev_word = null;
+  String _prev_word2 = null;
+
+  /** The latest query that the worker hasn't picked up yet. A newer query
+      replaces it, which coalesces fast typing into a single lookup. */
+  final AtomicReference<Query> _pending_query = new AtomicReference<Query>();
+
+  /** The suggestion displayed at the center of the candidates view, for
+      [_shown_query]. */
+  String _best_suggestion = null;
+
+  public Suggestions(Handler h, Callback c, Config conf)
   {
+    this(r -> h.post(r), null, c, conf);
+    _worker_thread = new HandlerThread("suggestions");
+    _worker_thread.start();
+    Handler worker = new Handler(_worker_thread.getLooper());
+    _worker = r -> worker.post(r);
+  }
+
+  /** [conf] is only used by [currently_typed_word]. */
+  Suggestions(Executor main, Executor worker, Callback c, Config conf)
+  {
+    _main = main;
+    _worker = worker;
     _callback = c;
     _config = conf;
   }
 
+  /** When [word] is empty, the next word is predicted from the previous
+      words. */
   public void currently_typed_word(String word)
   {
     Cdict dict = _config.current_dictionary;
-    if (word.length() < 2 || dict == null)
+    UserDictionary user_dict = _config.user_dictionary;
+    NextWords next_words = _config.next_words;
+    boolean predict = word.length() == 0 && next_words != null
+      && _prev_word != null;
+    if (!predict && (word.length() < 2 || (dict == null && user_dict == null)))
     {
-      set_suggestions(NO_SUGGESTIONS);
+      _current_query = null;
+      _pending_query.set(null);
+      show(null, NO_SUGGESTIONS);
+      return;
     }
-    else
+    start_query(new Query(word, dict, user_dict, next_words, _prev_word2,
+          _prev_word));
+  }
+
+  /** The suggestion entered by the space bar or [null]. If the suggestions
+      for the current word are still being computed, waits for them so that a
+      space typed quickly doesn't skip the auto-completion. */
+  public String best_suggestion()
+  {
+    final Query q = _current_query;
+    if (q != null && q != _shown_query)
     {
-      Cdict.Result r = dict.find(word);
-      String[] suggestions = new String[3];
-      int i = 0;
-      if (r.found)
-        suggestions[i++] = word;
-      int[] suffixes = dict.suffixes(r, 3);
-      int[] dist = dict.distance(word, 1, 3);
-      for (int j = 0; j < 3 && i < 3; j++)
+      FutureTask<List<String>> task = new FutureTask<List<String>>(
+          () -> results_of(q));
+      _worker.execute(task);
+      try
+      {
+        show(q, task.get(RESOLVE_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      }
+      catch (Exception e)
       {
-        if (suffixes.length > j)
-          suggestions[i++] = dict.word(suffixes[j]);
-        if (dist.length > j && i < 3)
-          suggestions[i++] = dict.word(dist[j]);
+        // Enter the space without auto-completion.
+        return null;
       }
-      set_suggestions(Arrays.asList(suggestions));
     }
+    return _best_suggestion;
+  }
+
+  /** The user typed [separator], which ended [word]. */
+  public void word_finished(String word, int separator)
+  {
+    UserDictionary user_dict = _config.user_dictionary;
+    if (user_dict != null)
+      user_dict.add(word, 1);
+    push_prev_word(word);
+    // Don't predict across sentences or other punctuations.
+    if (separator != ' ')
+      clear_prev_words();
+  }
+
+  /** The user picked a suggestion, which counts more than typing a word. */
+  public void suggestion_entered(String word)
+  {
+    UserDictionary user_dict = _config.user_dictionary;
+    if (user_dict != null)
+      user_dict.add(word, UserDictionary.MIN_COUNT);
+    push_prev_word(word);
+  }
+
+  /** Forget the previous words, for example when starting to type in a
+      different editor. */
+  public void clear_prev_words()
+  {
+    _prev_word = null;
+    _prev_word2 = null;
+  }
+
+  /** Stop the worker thread. Call when the service is being destroyed. */
+  public void destroy()
+  {
+    _pending_query.set(null);
+    if (_worker_thread != null)
+      _worker_thread.quit();
+  }
+
+  void start_query(Query q)
+  {
+    _current_query = q;
+    // Post a new task only if the previous query has already been picked up.
+    if (_pending_query.getAndSet(q) == null)
+      _worker.execute(_run_pending_query);
+  }
+
+  /** Learn the n-grams ending with [word] and make it the previous word. */
+  void push_prev_word(String word)
+  {
+    NextWords next_words = _config.next_words;
+    if (next_words != null)
+      next_words.add(_prev_word2, _prev_word, word);
+    _prev_word2 = _prev_word;
+    _prev_word = word;
+  }
+
+  /** The last word looked up by the worker and its lookup result. The next
+      word usually extends it by one character, in which case the lookup
+      continues from [_last_result] instead of starting from the beginning.
+      Only accessed from the worker thread. */
+  Cdict _last_dict = null;
+  String _last_word = null;
+  Cdict.Result _last_result = null;
+
+  /** The last query computed by the worker and its results. Only accessed
+      from the worker thread. */
+  Query _computed_query = null;
+  List<String> _computed = null;
+
+  /** Reused by every query. Only accessed from the worker thread. More
+      candidates than can be shown are fetched from the dictionary and
+      [_ranking] selects the best ones. */
+  final Cdict.Candidates _candidates = new Cdict.Candidates(CANDIDATES_POOL);
+  final Ranking _ranking = new Ranking(CandidatesView.NUM_CANDIDATES);
+  final String[] _user_words = new String[CandidatesView.NUM_CANDIDATES];
+  final int[] _user_counts = new int[CandidatesView.NUM_CANDIDATES];
+
+  static final int CANDIDATES_POOL = 8;
+  /** Maximum time the space bar waits for the suggestions. Lookups usually
+      take a few milliseconds. */
+  static final long RESOLVE_TIMEOUT_MS = 200;
+  /** Edit distance of the close matches. */
+  static final int DISTANCE = 1;
+
+  /** Words that followed the previous words are boosted. Words that followed
+      the two previous words even more. */
+  static final int BIGRAM_BONUS = 2;
+  static final int TRIGRAM_BONUS = 4;
+
+  /** Called on the worker thread. Don't compute the same query twice, the
+      space bar might ask for a query that was just computed. */
+  List<String> results_of(Query q)
+  {
+    if (q != _computed_query)
+    {
+      _computed = query(q);
+      _computed_query = q;
+    }
+    return _computed;
   }
 
-  void set_suggestions(List<String> ws)
+  /** Called on the worker thread. Words from the dictionaries in [q], which
+      can be [null], are ranked together. */
+  List<String> query(Query q)
   {
+    String word = q.word;
+    _ranking.clear();
+    if (q.dict != null && word.length() > 0)
+      query_dict(q.dict, word);
+    if (q.user_dict != null && word.length() > 0)
+    {
+      int n = q.user_dict.completions(word, _user_words, _user_counts);
+      add_user_words(word, n, 0);
+    }
+    if (q.next_words != null)
+    {
+      int n = q.next_words.predict(q.prev_word2, q.prev_word, true, word,
+          _user_words, _user_counts);
+      add_user_words(word, n, TRIGRAM_BONUS);
+      n = q.next_words.predict(q.prev_word2, q.prev_word, false, word,
+          _user_words, _user_counts);
+      add_user_words(word, n, BIGRAM_BONUS);
+    }
+    return _ranking.top();
+  }
+
+  /** Rank the first [n] words in [_user_words]. */
+  void add_user_words(String word, int n, int bonus)
+  {
+    for (int i = 0; i < n; i++)
+    {
+      String w = _user_words[i];
+      _ranking.add(w, UserDictionary.freq_of_count(_user_counts[i]) + bonus,
+          w.equals(word) ? Ranking.EXACT : Ranking.PREFIX, DISTANCE);
+    }
+  }
+
+  /** The lookup and decoding of the words is done in a single call to the
+      dictionary. Falls back to a full lookup when the word doesn't extend the
+      previous one, for example after a backspace or when the cursor moved to
+      a different word. */
+  void query_dict(Cdict dict, String word)
+  {
+    Cdict.Candidates c = _candidates;
+    if (dict == _last_dict && _last_word != null
+        && word.startsWith(_last_word))
+      dict.suggest(word, _last_result, _last_word.length(), DISTANCE, c);
+    else
+      dict.suggest(word, null, 0, DISTANCE, c);
+    _last_dict = dict;
+    _last_word = word;
+    _last_result = c.result;
+    for (int i = 0; i < c.count; i++)
+      _ranking.add(c.words[i], c.freqs[i], c.kinds[i], DISTANCE);
+  }
+
+  final Runnable _run_pending_query = new Runnable()
+  {
+    public void run()
+    {
+      Query q = _pending_query.getAndSet(null);
+      if (q == null)
+        return;
+      final Query query = q;
+      final List<String> ws = results_of(q);
+      _main.execute(new Runnable()
+          {
+            public void run()
+            {
+              // The word changed while the query was running or the results
+              // are already shown.
+              if (query == _current_query && query != _shown_query)
+                show(query, ws);
+            }
+          });
+    }
+  };
+
+  /** Show the results of [q], which is [null] if there are no suggestions.
+      Predictions are not entered by the space bar. */
+  void show(Query q, List<String> ws)
+  {
+    _shown_query = q;
     _callback.set_suggestions(ws);
-    best_suggestion = (ws.size() > 0) ? ws.get(0) : null;
+    boolean prediction = q != null && q.word.length() == 0;
+    _best_suggestion = (ws.size() > 0 && !prediction) ? ws.get(0) : null;
   }
 
   static final List<String> NO_SUGGESTIONS = Arrays.asList();
 
+  static final class Query
+  {
+    public final String word; // Empty when predicting the next word
+    public final Cdict dict; // Might be [null]
+    public final UserDictionary user_dict; // Might be [null]
+    public final NextWords next_words; // Might be [null]
+    public final String prev_word2; // Might be [null]
+    public final String prev_word; // Might be [null]
+
+    public Query(String w, Cdict d, UserDictionary u, NextWords n,
+        String p2, String p1)
+    {
+      word = w; dict = d; user_dict = u; next_words = n;
+      prev_word2 = p2; prev_word = p1;
+    }
+  }
+
   public static interface Callback
   {
     public void set_suggestions(List<String> suggestions);
@@ -320,20 +320,25 @@ public final class ComposeKeyData
     "\n".join(map(gen_entry_state, entry_states.items())),
 ))
 
-total_sequences = 0
-tries = {} # Orderred dict
-for fname in sorted(sys.argv[1:]):
-    tname, _ = os.path.splitext(os.path.basename(fname))
-    if os.path.isdir(fname):
-        sequences = parse_sequences_dir(fname)
-    else:
-        sequences = parse_sequences_file(fname)
-    add_sequences_to_trie(sequences, tries.setdefault(tname, {}))
-    total_sequences += len(sequences)
+def main():
+    total_sequences = 0
+    tries = {} # Orderred dict
+    for fname in sorted(sys.argv[1:]):
+        tname, _ = os.path.splitext(os.path.basename(fname))
+        if os.path.isdir(fname):
+            sequences = parse_sequences_dir(fname)
+        else:
+            sequences = parse_sequences_file(fname)
+        add_sequences_to_trie(sequences, tries.setdefault(tname, {}))
+        total_sequences += len(sequences)
+
+    check_for_warnings(tries["compose"])
+    entry_states, automata = make_automata(tries)
+    gen_java(entry_states, automata)
 
-check_for_warnings(tries["compose"])
-entry_states, automata = make_automata(tries)
-gen_java(entry_states, automata)
+    print("Compiled %d sequences into %d states. Dropped %d sequences. Generated %d warnings." % (total_sequences, len(automata), dropped_sequences, warning_count), file=sys.stderr)
+    # print_automata(automata)
 
-print("Compiled %d sequences into %d states. Dropped %d sequences. Generated %d warnings." % (total_sequences, len(automata), dropped_sequences, warning_count), file=sys.stderr)
-# print_automata(automata)
+# Also imported by [gen_modifier_tables.py].
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,123 @@
+import sys, os
+# A __pycache__ directory would be taken as a sequence directory by the
+# [compileComposeSequences] task.
+sys.dont_write_bytecode = True
+from compile import parse_sequences_file_json
+
+# Generate direct lookup tables for the modifiers that are implemented with
+# compose sequences. Only the sequences of one character that result in a
+# character final state are included, these are the ones for which
+# [ComposeKey.apply] returns a character key. Other results are not in the
+# tables and [KeyModifier] falls back to [ComposeKey].
+# See [ModifierTables.java] for the interpreter.
+#
+# Takes the directory containing the sequences as argument and generate a
+# Java file.
+
+# Sequence files used by [KeyModifier.modify] for each modifier.
+modifiers = {
+        "SHIFT": "shift",
+        "FN": "fn",
+        "GRAVE": "accent_grave",
+        "AIGU": "accent_aigu",
+        "CIRCONFLEXE": "accent_circonflexe",
+        "TILDE": "accent_tilde",
+        "CEDILLE": "accent_cedille",
+        "TREMA": "accent_trema",
+        "CARON": "accent_caron",
+        "RING": "accent_ring",
+        "MACRON": "accent_macron",
+        "OGONEK": "accent_ogonek",
+        "DOT_ABOVE": "accent_dot_above",
+        "DOUBLE_AIGU": "accent_double_aigu",
+        "ORDINAL": "accent_ordinal",
+        "SUPERSCRIPT": "accent_superscript",
+        "SUBSCRIPT": "accent_subscript",
+        "ARROWS": "accent_arrows",
+        "BOX": "accent_box",
+        "SLASH": "accent_slash",
+        "BAR": "accent_bar",
+        "DOT_BELOW": "accent_dot_below",
+        "HORN": "accent_horn",
+        "HOOK_ABOVE": "accent_hook_above",
+        "DOUBLE_GRAVE": "accent_double_grave",
+        "SMALL_CAPS": "accent_small_caps",
+        }
+
+# Same condition as in [compile.py]'s [make_automata].
+def is_char_final_state(result):
+    return len(result) == 1 and 0 < ord(result) <= 32767
+
+# Pairs of characters and their result, sorted.
+def table_of_sequences(seqs):
+    table = {}
+    for seq, result in seqs:
+        if len(seq) != 1 or len(seq[0]) != 1 or ord(seq[0]) > 65535:
+            continue
+        if is_char_final_state(result):
+            table[seq[0]] = result
+        else:
+            table.pop(seq[0], None)
+    return sorted(table.items())
+
+def char_repr(c):
+    # Java unescapes unicode sequences before parsing.
+    if c == "\"": return "\\\""
+    if c == "\\": return "\\\\"
+    if " " <= c <= "~": return c
+    return "\\u%04x" % ord(c)
+
+def gen_string(pairs):
+    chars = [ char_repr(c) for p in pairs for c in p ]
+    lines = [ "".join(chars[i:i+32]) for i in range(0, len(chars), 32) ]
+    return "\" +\n    \"".join(lines)
+
+def gen_java(tables):
+    fields = "\n\n".join(
+            "  static final String %s =\n    \"%s\";" % (m, gen_string(pairs))
+            for m, pairs in tables)
+    cases = "\n".join(
+            "      case %s: return %s;" % (m, m) for m, _ in tables)
+    states = "\n".join(
+            "      case %s: return ComposeKeyData.%s;" % (m, modifiers[m])
+            for m, _ in tables)
+    print("""package com.overboard.keyboard;
+
+/** This file is generated, see [srcs/compose/gen_modifier_tables.py]. */
+
+public final class ModifierTablesData
+{
+  /** Characters followed by the character they are modified into. */
+  public static String pairs(KeyValue.Modifier m)
+  {
+    switch (m)
+    {
+%s
+      default: return null;
+    }
+  }
+
+  /** Compose state the tables are generated from. */
+  public static int compose_state(KeyValue.Modifier m)
+  {
+    switch (m)
+    {
+%s
+      default: return -1;
+    }
+  }
+
+%s
+}""" % (cases, states, fields))
+
+def main():
+    dname = sys.argv[1]
+    tables = []
+    for m, fname in modifiers.items():
+        seqs = parse_sequences_file_json(os.path.join(dname, fname + ".json"))
+        tables.append((m, table_of_sequences(seqs)))
+    gen_java(tables)
+    print("Generated %d modifier tables with %d entries." % (len(tables),
+        sum(len(t) for _, t in tables)), file=sys.stderr)
+
+main()
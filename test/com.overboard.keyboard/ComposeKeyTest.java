@@ -3,6 +3,7 @@ package com.overboard.keyboard;
 import com.overboard.keyboard.ComposeKey;
 import com.overboard.keyboard.ComposeKeyData;
 import com.overboard.keyboard.KeyValue;
+import java.util.Arrays;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -50,6 +51,33 @@ public class ComposeKeyTest
     assertEquals(apply("𝕩", state), KeyValue.makeStringKey("𝕏"));
   }
 
+  /** The direct tables of [ComposeKey.Compiled] give the same transitions
+      as a binary search, from every state. */
+  @Test
+  public void compiledTransitions() throws Exception
+  {
+    char[] states = ComposeKeyData.states;
+    char[] edges = ComposeKeyData.edges;
+    for (int s = 1; s < states.length; s += edges[s])
+    {
+      if (states[s] != 0)
+        continue;
+      for (char c = 0; c < 0x3000; c++)
+      {
+        int t = Arrays.binarySearch(states, s + 1, s + edges[s], c);
+        KeyValue r = ComposeKey.apply(s, c);
+        if (t < 0)
+          assertNull(r);
+        else if (states[edges[t]] == 0)
+          assertEquals(KeyValue.makeComposePending(String.valueOf(c), edges[t], 0), r);
+        else
+          assertNotNull(r);
+      }
+    }
+    // Results are resolved once.
+    assertSame(apply("oe"), apply("oe"));
+  }
+
   KeyValue apply(String seq)
   {
     return ComposeKey.apply(ComposeKeyData.compose, seq);
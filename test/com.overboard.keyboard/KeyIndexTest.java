@@ -0,0 +1,102 @@
+package com.overboard.keyboard;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class KeyIndexTest
+{
+  public KeyIndexTest() {}
+
+  static KeyboardData.Key key(float width, float shift)
+  {
+    return new KeyboardData.Key(new KeyValue[9], null, 0, width, shift, null);
+  }
+
+  static final KeyboardData.Key A = key(1.f, 0.f);
+  static final KeyboardData.Key B = key(2.f, 0.f);
+  static final KeyboardData.Key C = key(1.f, 1.f); // Gap on the left
+  static final KeyboardData.Key D = key(0.5f, 0.f);
+  static final KeyboardData.Key E = key(4.f, 0.5f);
+
+  static final List<KeyboardData.Row> ROWS = Arrays.asList(
+      new KeyboardData.Row(Arrays.asList(A, B, C, D), 1.f, 0.f),
+      new KeyboardData.Row(Arrays.asList(E), 1.f, 0.5f));
+
+  /** Keys are 10px wide and rows 20px high, with a 5px margin on the left
+      and on the top. */
+  static KeyIndex index()
+  {
+    return new KeyIndex(ROWS, 5.5f, 5.f, 20.f, 5.f, 10.f);
+  }
+
+  @Test
+  public void inside_keys()
+  {
+    KeyIndex idx = index();
+    assertSame(A, idx.nearest_key(5.f, 5.f));
+    assertSame(A, idx.nearest_key(14.9f, 24.9f));
+    assertSame(B, idx.nearest_key(15.f, 10.f));
+    assertSame(C, idx.nearest_key(45.f, 10.f));
+    assertSame(D, idx.nearest_key(59.f, 10.f));
+    assertSame(E, idx.nearest_key(10.f, 25.f)); // In the space above the row
+    assertSame(E, idx.nearest_key(30.f, 54.f));
+    assertNull(idx.nearest_key(10.f, 4.f));
+  }
+
+  @Test
+  public void nearest_key()
+  {
+    KeyIndex idx = index();
+    assertSame(B, idx.nearest_key(39.9f, 10.f));
+    assertSame(C, idx.nearest_key(40.f, 10.f));
+    assertSame(E, idx.nearest_key(6.f, 40.f)); // Gap on the left of E
+    assertSame(E, idx.nearest_key(59.f, 40.f)); // Past the end of the row
+    assertNull(idx.nearest_key(4.f, 10.f));
+    assertNull(idx.nearest_key(60.f, 10.f));
+    assertNull(idx.nearest_key(10.f, 55.f));
+  }
+
+  @Test
+  public void matches_linear_scan()
+  {
+    KeyIndex idx = index();
+    for (float y = 0.f; y < 60.f; y += 0.7f)
+      for (float x = 0.f; x < 65.f; x += 0.3f)
+        assertSame("x=" + x + " y=" + y, linear_nearest_key(x, y),
+            idx.nearest_key(x, y));
+  }
+
+  /** The key at the smallest horizontal distance in the row under the
+      touch. Ties go to the key on the right. */
+  static KeyboardData.Key linear_nearest_key(float tx, float ty)
+  {
+    float y = 5.f;
+    if (ty < y || tx < 5.f || tx >= 60.f)
+      return null;
+    for (KeyboardData.Row row : ROWS)
+    {
+      y += (row.shift + row.height) * 20.f;
+      if (ty >= y)
+        continue;
+      float x = 5.f;
+      KeyboardData.Key nearest = null;
+      float nearest_dist = Float.MAX_VALUE;
+      for (KeyboardData.Key key : row.keys)
+      {
+        float xLeft = x + key.shift * 10.f;
+        float xRight = xLeft + key.width * 10.f;
+        float dist = Math.max(0.f, Math.max(xLeft - tx, tx - xRight));
+        if (dist <= nearest_dist)
+        {
+          nearest = key;
+          nearest_dist = dist;
+        }
+        x = xRight;
+      }
+      return nearest;
+    }
+    return null;
+  }
+}
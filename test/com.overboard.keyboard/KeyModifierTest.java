@@ -0,0 +1,67 @@
+package com.overboard.keyboard;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class KeyModifierTest
+{
+  public KeyModifierTest() {}
+
+  @Test
+  public void memoized_results()
+  {
+    KeyModifier.set_modmap(null);
+    Pointers.Modifiers shift = Utils.mods(KeyValue.SHIFT);
+    Pointers.Modifiers shift2 = Utils.mods(KeyValue.SHIFT);
+    KeyValue a = KeyValue.getKeyByName("a");
+    KeyValue r = KeyModifier.modify(a, shift);
+    assertEquals(KeyValue.getKeyByName("A"), r);
+    // Same result from an equal modifier state.
+    assertSame(r, KeyModifier.modify(a, shift));
+    assertSame(r, KeyModifier.modify(KeyValue.getKeyByName("a"), shift2));
+    assertEquals(KeyModifier.modify(a, KeyValue.Modifier.SHIFT), r);
+    // Keys turned into placeholders.
+    assertNull(KeyModifier.modify(KeyValue.makeStringKey(""), shift));
+    assertNull(KeyModifier.modify(KeyValue.makeStringKey(""), shift));
+  }
+
+  @Test
+  public void modmap_invalidates()
+  {
+    KeyModifier.set_modmap(null);
+    Pointers.Modifiers shift = Utils.mods(KeyValue.SHIFT);
+    KeyValue a = KeyValue.getKeyByName("a");
+    assertEquals(KeyValue.getKeyByName("A"), KeyModifier.modify(a, shift));
+    Modmap mm = new Modmap();
+    mm.add(Modmap.M.Shift, a, KeyValue.getKeyByName("b"));
+    KeyModifier.set_modmap(mm);
+    assertEquals(KeyValue.getKeyByName("b"), KeyModifier.modify(a, shift));
+    assertEquals(KeyValue.getKeyByName("A"),
+        KeyModifier.modify_no_modmap(a, shift));
+    KeyModifier.set_modmap(null);
+    assertEquals(KeyValue.getKeyByName("A"), KeyModifier.modify(a, shift));
+  }
+
+  @Test
+  public void bounded_size()
+  {
+    KeyModifier.set_modmap(null);
+    Pointers.Modifiers shift = Utils.mods(KeyValue.SHIFT);
+    for (int i = 0; i < KeyModifier.MEMO_MAX_SIZE * 2; i++)
+    {
+      KeyValue k = KeyValue.makeStringKey("k" + i);
+      assertEquals(KeyModifier.modify(k, KeyValue.Modifier.SHIFT),
+          KeyModifier.modify(k, shift));
+    }
+    assertEquals(KeyValue.getKeyByName("A"),
+        KeyModifier.modify(KeyValue.getKeyByName("a"), shift));
+  }
+
+  static class Utils
+  {
+    static Pointers.Modifiers mods(KeyValue m)
+    {
+      return Pointers.Modifiers.ofArray(new KeyValue[]{ m }, 1);
+    }
+  }
+}
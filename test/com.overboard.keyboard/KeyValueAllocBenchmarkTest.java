@@ -0,0 +1,99 @@
+package com.overboard.keyboard;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Measure the memory allocated by the [KeyValue] operations done for every
+    keystroke: making the typed key, applying shift and looking it up in a set
+    of keys. Plain char keys are shared, typing them must not allocate. The
+    same is done with keys made with the constructor, which is how every key
+    was made before, and reported in the failure message. */
+public class KeyValueAllocBenchmarkTest
+{
+  public KeyValueAllocBenchmarkTest() {}
+
+  static final String TEXT =
+    "the quick brown fox jumps over the lazy dog while the keyboard counts "
+    + "every allocation made for the keys that are typed, shifted and found";
+  static final int WARMUP_ROUNDS = 200;
+  static final int MEASURED_ROUNDS = 1000;
+
+  /** Keys escape into this array so that allocations are not optimized
+      away. */
+  final KeyValue[] _sink = new KeyValue[TEXT.length()];
+  final Set<KeyValue> _layout_keys = new HashSet<KeyValue>();
+  int _found = 0;
+
+  @Test
+  public void typing()
+  {
+    com.sun.management.ThreadMXBean bean = thread_bean();
+    Assume.assumeTrue(bean != null);
+    for (char c = 'A'; c <= 'Z'; c++)
+      _layout_keys.add(KeyValue.makeCharKey(c));
+    long shared = measure(bean, true);
+    long fresh = measure(bean, false);
+    long keys = (long)MEASURED_ROUNDS * TEXT.length();
+    assertTrue(_found > 0);
+    // Less than a byte per keystroke, leaving room for allocations unrelated
+    // to the keys, for example by the JIT.
+    assertTrue("Bytes allocated per keystroke: shared " + (shared / keys)
+        + ", constructor " + (fresh / keys), shared < keys);
+  }
+
+  long measure(com.sun.management.ThreadMXBean bean, boolean shared)
+  {
+    for (int i = 0; i < WARMUP_ROUNDS; i++)
+      type(shared);
+    long tid = Thread.currentThread().getId();
+    long start = bean.getThreadAllocatedBytes(tid);
+    for (int i = 0; i < MEASURED_ROUNDS; i++)
+      type(shared);
+    return bean.getThreadAllocatedBytes(tid) - start;
+  }
+
+  void type(boolean shared)
+  {
+    for (int i = 0; i < TEXT.length(); i++)
+    {
+      char c = TEXT.charAt(i);
+      KeyValue k;
+      if (shared)
+        k = KeyValue.makeCharKey(c).withChar(Character.toUpperCase(c));
+      else
+      {
+        new_key(c);
+        k = new_key(Character.toUpperCase(c));
+      }
+      _sink[i] = k;
+      if (_layout_keys.contains(k))
+        _found++;
+    }
+  }
+
+  static KeyValue new_key(char c)
+  {
+    return new KeyValue(String.valueOf(c), KeyValue.Kind.Char, c, 0);
+  }
+
+  static com.sun.management.ThreadMXBean thread_bean()
+  {
+    try
+    {
+      com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+      if (!bean.isThreadAllocatedMemorySupported())
+        return null;
+      bean.setThreadAllocatedMemoryEnabled(true);
+      return bean;
+    }
+    catch (Throwable e)
+    {
+      return null;
+    }
+  }
+}
@@ -22,6 +22,29 @@ public class KeyValueTest
         KeyValue.keyeventKey("tab", KeyEvent.KEYCODE_TAB, KeyValue.FLAG_SMALLER_FONT));
   }
 
+  @Test
+  public void shared_char_keys()
+  {
+    KeyValue a = KeyValue.makeCharKey('a');
+    assertSame(a, KeyValue.getKeyByName("a"));
+    assertSame(a, KeyValue.makeStringKey("a"));
+    assertSame(a, KeyValue.makeCharKey('b').withChar('a'));
+    assertSame(KeyValue.getKeyByName("A"), a.withChar('A'));
+    // Same character but different symbols or flags.
+    assertNotEquals(a, KeyValue.makeCharKey('a', "x", 0));
+    assertNotEquals(a, a.withFlags(KeyValue.FLAG_GREYED));
+    assertEquals(a.withFlags(KeyValue.FLAG_GREYED),
+        KeyValue.makeStringKey("a", KeyValue.FLAG_GREYED));
+    // The slot of 'a' was replaced.
+    assertEquals(a, KeyValue.makeCharKey('a'));
+    // Keys made with the constructor are equal to the shared keys.
+    KeyValue s = new KeyValue("s", KeyValue.Kind.Char, 's', 0);
+    assertEquals(KeyValue.makeCharKey('s'), s);
+    assertEquals(s, KeyValue.makeCharKey('s'));
+    assertEquals(KeyValue.makeStringKey("Foo").withSymbol("Symbol"),
+        KeyValue.makeMacro("Symbol", new KeyValue[] { KeyValue.makeStringKey("Foo") }, 0));
+  }
+
   @Test
   public void numpad_script()
   {
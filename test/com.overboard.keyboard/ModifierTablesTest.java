@@ -0,0 +1,95 @@
+package com.overboard.keyboard;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ModifierTablesTest
+{
+  public ModifierTablesTest() {}
+
+  /** Applying a modifier through [ModifierTables] gives the same result as
+      through [ComposeKey], for every character that appears in a layout. */
+  @Test
+  public void same_as_compose() throws Exception
+  {
+    TreeSet<Character> chars = layouts_chars();
+    assertTrue(chars.size() > 100);
+    KeyModifier.set_modmap(null);
+    int found = 0;
+    for (KeyValue.Modifier m : KeyValue.Modifier.values())
+    {
+      int state = ModifierTablesData.compose_state(m);
+      for (char c : chars)
+      {
+        char r = ModifierTables.get(m, c);
+        if (state < 0)
+        {
+          assertEquals(0, r);
+          continue;
+        }
+        KeyValue expected = ComposeKey.apply(state, c);
+        // Results that are not a single character, or that are named like
+        // "nbsp", are not in the tables and still go through [ComposeKey].
+        // Every other character result must be in the tables.
+        if (is_plain_char(expected))
+          assertTrue(m + " " + c + " missing", r != 0);
+        if (r == 0)
+          continue;
+        found++;
+        assertEquals(m + " " + c, expected, KeyValue.makeCharKey(r));
+        assertEquals(m + " " + c, expected, KeyModifier.modify(KeyValue.makeCharKey(c), m));
+      }
+    }
+    assertTrue(found > 100);
+  }
+
+  /** Whether [kv] is a character key without flags whose symbol is the
+      character itself, in the range handled by the tables. */
+  static boolean is_plain_char(KeyValue kv)
+  {
+    if (kv == null || kv.getKind() != KeyValue.Kind.Char || kv.getFlags() != 0)
+      return false;
+    char c = kv.getChar();
+    return c > 0 && c <= 0x7FFF && kv.getString().equals(String.valueOf(c));
+  }
+
+  @Test
+  public void lookup()
+  {
+    // Handled by [Character.toUpperCase].
+    assertEquals(0, ModifierTables.get(KeyValue.Modifier.SHIFT, 'a'));
+    assertEquals('é', ModifierTables.get(KeyValue.Modifier.AIGU, 'e'));
+    assertEquals('ẞ', ModifierTables.get(KeyValue.Modifier.SHIFT, 'ß'));
+    assertEquals(0, ModifierTables.get(KeyValue.Modifier.AIGU, '￿'));
+    assertEquals(0, ModifierTables.get(KeyValue.Modifier.CTRL, 'a'));
+  }
+
+  static TreeSet<Character> layouts_chars() throws Exception
+  {
+    TreeSet<Character> chars = new TreeSet<Character>();
+    File[] files = new File("srcs/layouts").listFiles();
+    assertNotNull(files);
+    for (File f : files)
+    {
+      if (!f.getName().endsWith(".xml"))
+        continue;
+      Reader inp = new InputStreamReader(new FileInputStream(f), "UTF-8");
+      try
+      {
+        int c;
+        while ((c = inp.read()) != -1)
+          chars.add((char)c);
+      }
+      finally
+      {
+        inp.close();
+      }
+    }
+    return chars;
+  }
+}
@@ -0,0 +1,423 @@
+package com.overboard.keyboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.graphics.RectF;
+import android.graphics.RenderNode;
+import android.os.Build.VERSION;
+import android.view.View;
+
+import app.cash.paparazzi.DeviceConfig;
+import app.cash.paparazzi.Paparazzi;
+import com.android.ide.common.rendering.api.SessionParams;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/** Time [Keyboard2View.onDraw] for every theme and for a few layouts, with
+    and without the top gradient, and count the draw operations. Fails if a
+    key needs more than [MAX_OPS_PER_KEY] operations.
+
+    Draw times depend on the machine and are compared to the time of
+    [REFERENCE], the plainest theme, measured in the same run. A case fails
+    if it is more than [MAX_RATIO] times slower.
+
+    A baseline file can also be given in the "render_benchmark.baseline"
+    property. A case then also fails if it is slower than the baseline by
+    more than [TOLERANCE]. The baseline is written instead when the
+    "render_benchmark.record" property is "true", see build.gradle.kts. */
+public class RenderBenchmarkTest
+{
+  @Rule
+  public Paparazzi paparazzi = new Paparazzi();
+
+  static final int WARMUP_DRAWS = 5;
+  static final int MEASURED_DRAWS = 30;
+  /** Frame, four border sides, dimples, indication and up to 9 labels with
+      their outlines. */
+  static final int MAX_OPS_PER_KEY = 25;
+  static final double TOLERANCE = 0.25;
+  /** The themes drawing dimples, outlines and halos take them from cached
+      bitmaps, which keeps them within a small factor of the plainest
+      theme. */
+  static final double MAX_RATIO = 3.0;
+  static final String REFERENCE = "theme Light";
+
+  static final int[] THEMES = new int[]{
+    R.style.Light, R.style.Dark, R.style.Black, R.style.AltBlack,
+    R.style.White, R.style.ePaper, R.style.Desert, R.style.Jungle,
+    R.style.MonetLight, R.style.MonetDark, R.style.RosePine,
+    R.style.EverforestLight, R.style.Cobalt, R.style.Pine,
+    R.style.ePaperBlack, R.style.MitoTTY, R.style.MitoPulse, R.style.MitoMT3,
+    R.style.PBTfansXRay, R.style.TaiHaoMiami
+  };
+
+  static final int[] LAYOUTS = new int[]{
+    R.xml.latn_qwerty_us, R.xml.latn_azerty_fr, R.xml.cyrl_jcuken_ru,
+    R.xml.hang_dubeolsik_kr, R.xml.deva_inscript
+  };
+
+  /** Average draw time in microseconds of each case, by case name. */
+  static final Map<String, Long> _results = new TreeMap<String, Long>();
+  /** Average draw time in microseconds of [REFERENCE]. */
+  static long _reference_us = -1;
+
+  @Before
+  public void setup()
+  {
+    paparazzi.unsafeUpdateConfig(DeviceConfig.PIXEL_5, null,
+        SessionParams.RenderingMode.SHRINK);
+  }
+
+  @Test
+  public void themes()
+  {
+    for (int theme : THEMES)
+    {
+      String name = paparazzi.getResources().getResourceEntryName(theme);
+      bench("theme " + name, theme, R.xml.latn_qwerty_us, false);
+    }
+  }
+
+  @Test
+  public void layouts()
+  {
+    for (int layout : LAYOUTS)
+    {
+      String name = paparazzi.getResources().getResourceEntryName(layout);
+      bench("layout " + name, R.style.PBTfansXRay, layout, false);
+    }
+  }
+
+  @Test
+  public void top_gradient()
+  {
+    bench("top_gradient Dark", R.style.Dark, R.xml.latn_qwerty_us, true);
+    bench("top_gradient PBTfansXRay", R.style.PBTfansXRay,
+        R.xml.latn_qwerty_us, true);
+  }
+
+  /** The path used on hardware accelerated canvases, on API 29+. The keys
+      are recorded into [RenderNode]s, which can't be replayed on a software
+      canvas. The first frame, which records every key, and the next frames,
+      which only draw the recordings, are timed separately. */
+  @Test
+  public void retained()
+  {
+    assumeTrue(VERSION.SDK_INT >= 29);
+    bench_retained("retained Dark", R.style.Dark, R.xml.latn_qwerty_us);
+    bench_retained("retained PBTfansXRay", R.style.PBTfansXRay,
+        R.xml.latn_qwerty_us);
+  }
+
+  void bench(String name, int theme, int layout, boolean top_gradient)
+  {
+    KeyboardData kbd = load_layout(layout);
+    Keyboard2View view = make_view(theme, kbd, top_gradient);
+    CountingCanvas canvas = new CountingCanvas(make_bitmap(view), false);
+    long avg_us = time_draws(view, canvas);
+    check(name, kbd, avg_us, canvas.ops / MEASURED_DRAWS);
+  }
+
+  /** Average time of a draw in microseconds, after [WARMUP_DRAWS] draws.
+      [canvas.ops] counts the operations of the measured draws. */
+  static long time_draws(Keyboard2View view, CountingCanvas canvas)
+  {
+    for (int i = 0; i < WARMUP_DRAWS; i++)
+      view.draw(canvas);
+    canvas.ops = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_DRAWS; i++)
+      view.draw(canvas);
+    return (System.nanoTime() - start) / MEASURED_DRAWS / 1000;
+  }
+
+  /** Measured once, by the first test that needs it. */
+  long reference_us()
+  {
+    if (_reference_us < 0)
+    {
+      Keyboard2View view = make_view(R.style.Light,
+          load_layout(R.xml.latn_qwerty_us), false);
+      _reference_us = Math.max(1,
+          time_draws(view, new CountingCanvas(make_bitmap(view), false)));
+    }
+    return _reference_us;
+  }
+
+  void bench_retained(String name, int theme, int layout)
+  {
+    KeyboardData kbd = load_layout(layout);
+    long record_ns = 0;
+    int record_ops = 0;
+    Keyboard2View view = null;
+    CountingCanvas canvas = null;
+    // A new view records every key on its first frame.
+    for (int i = 0; i < WARMUP_DRAWS + MEASURED_DRAWS; i++)
+    {
+      view = make_view(theme, kbd, false);
+      canvas = new CountingCanvas(make_bitmap(view), true);
+      long start = System.nanoTime();
+      try { view.draw(canvas); }
+      catch (RuntimeException e)
+      {
+        assumeNoException("RenderNode not supported by layoutlib", e);
+      }
+      if (i >= WARMUP_DRAWS)
+      {
+        record_ns += System.nanoTime() - start;
+        record_ops += canvas.ops;
+      }
+    }
+    check(name + " record", kbd, record_ns / MEASURED_DRAWS / 1000,
+        record_ops / MEASURED_DRAWS);
+    long replay_us = time_draws(view, canvas);
+    check(name + " replay", kbd, replay_us, canvas.ops / MEASURED_DRAWS);
+  }
+
+  KeyboardData load_layout(int layout)
+  {
+    return LayoutModifier.modify_layout(
+        KeyboardData.load(paparazzi.getResources(), layout));
+  }
+
+  Keyboard2View make_view(int theme, KeyboardData kbd, boolean top_gradient)
+  {
+    Config.initGlobalConfig(new Prefs(top_gradient), paparazzi.getResources(),
+        false, null);
+    Keyboard2View view = new Keyboard2View(paparazzi.getContext(), null);
+    view.applyThemeStyle(theme);
+    view.setKeyboard(kbd);
+    int width = paparazzi.getResources().getDisplayMetrics().widthPixels;
+    view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    return view;
+  }
+
+  static Bitmap make_bitmap(View view)
+  {
+    return Bitmap.createBitmap(view.getMeasuredWidth(),
+        view.getMeasuredHeight(), Bitmap.Config.ARGB_8888);
+  }
+
+  /** Check the operations count and compare [avg_us] to the reference and
+      to the baseline. */
+  void check(String name, KeyboardData kbd, long avg_us, int ops)
+  {
+    int keys = 0;
+    for (KeyboardData.Row row : kbd.rows)
+      keys += row.keys.size();
+    _results.put(name, avg_us);
+    assertTrue(name + ": " + ops + " draw operations for " + keys + " keys",
+        ops <= keys * MAX_OPS_PER_KEY);
+    long reference = reference_us();
+    assertTrue(name + ": " + avg_us + "us, " + REFERENCE + " " + reference
+        + "us", avg_us <= reference * MAX_RATIO);
+    Long baseline = baseline().get(name);
+    if (baseline != null && !record())
+      assertTrue(name + ": " + avg_us + "us, baseline " + baseline + "us",
+          avg_us <= baseline * (1 + TOLERANCE));
+  }
+
+  @AfterClass
+  public static void write_baseline() throws IOException
+  {
+    String path = System.getProperty("render_benchmark.baseline");
+    if (path == null || !record())
+      return;
+    Map<String, Long> all = new TreeMap<String, Long>(baseline());
+    all.putAll(_results);
+    FileWriter out = new FileWriter(path);
+    try
+    {
+      for (Map.Entry<String, Long> e : all.entrySet())
+        out.write(e.getKey() + "\t" + e.getValue() + "\n");
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  static boolean record()
+  {
+    return "true".equals(System.getProperty("render_benchmark.record"));
+  }
+
+  static Map<String, Long> _baseline = null;
+
+  /** Lines of the form [name TAB microseconds]. */
+  static Map<String, Long> baseline()
+  {
+    if (_baseline != null)
+      return _baseline;
+    _baseline = new TreeMap<String, Long>();
+    String path = System.getProperty("render_benchmark.baseline");
+    if (path == null || !new File(path).exists())
+      return _baseline;
+    try
+    {
+      BufferedReader inp = new BufferedReader(new FileReader(path));
+      try
+      {
+        String line;
+        while ((line = inp.readLine()) != null)
+        {
+          int tab = line.lastIndexOf('\t');
+          if (tab > 0)
+            _baseline.put(line.substring(0, tab),
+                Long.parseLong(line.substring(tab + 1)));
+        }
+      }
+      finally
+      {
+        inp.close();
+      }
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    return _baseline;
+  }
+
+  /** Default preferences, with the overlay features used by the themes. */
+  static class Prefs extends ThemeSnapshotTest.StubPrefs
+  {
+    final boolean _top_gradient;
+
+    Prefs(boolean top_gradient) { _top_gradient = top_gradient; }
+
+    @Override
+    public boolean getBoolean(String key, boolean def)
+    {
+      if (key.equals("top_gradient"))
+        return _top_gradient;
+      return def;
+    }
+  }
+
+  /** Count the operations done by the keyboard view. When [hardware] is
+      set, the canvas pretends to be hardware accelerated and the
+      [RenderNode]s are counted but not drawn. */
+  static class CountingCanvas extends Canvas
+  {
+    public int ops = 0;
+    final boolean _hardware;
+
+    CountingCanvas(Bitmap b, boolean hardware)
+    {
+      super(b);
+      _hardware = hardware;
+    }
+
+    @Override
+    public boolean isHardwareAccelerated()
+    { return _hardware || super.isHardwareAccelerated(); }
+
+    @Override
+    public void drawRenderNode(RenderNode node)
+    { ops++; }
+
+    @Override
+    public void drawRoundRect(RectF r, float rx, float ry, Paint p)
+    { ops++; super.drawRoundRect(r, rx, ry, p); }
+
+    @Override
+    public void drawPath(Path path, Paint p)
+    { ops++; super.drawPath(path, p); }
+
+    @Override
+    public void drawRect(float l, float t, float r, float b, Paint p)
+    { ops++; super.drawRect(l, t, r, b, p); }
+
+    @Override
+    public void drawCircle(float x, float y, float r, Paint p)
+    { ops++; super.drawCircle(x, y, r, p); }
+
+    @Override
+    public void drawBitmap(Bitmap b, float l, float t, Paint p)
+    { ops++; super.drawBitmap(b, l, t, p); }
+
+    @Override
+    public void drawBitmap(Bitmap b, Rect src, RectF dst, Paint p)
+    { ops++; super.drawBitmap(b, src, dst, p); }
+
+    @Override
+    public void drawBitmap(Bitmap b, Rect src, Rect dst, Paint p)
+    { ops++; super.drawBitmap(b, src, dst, p); }
+
+    @Override
+    public void drawBitmap(Bitmap b, Matrix m, Paint p)
+    { ops++; super.drawBitmap(b, m, p); }
+
+    @Override
+    public void drawText(String s, float x, float y, Paint p)
+    { ops++; super.drawText(s, x, y, p); }
+
+    @Override
+    public void drawText(String s, int start, int end, float x, float y,
+        Paint p)
+    { ops++; super.drawText(s, start, end, x, y, p); }
+
+    @Override
+    public void drawText(char[] s, int index, int count, float x, float y,
+        Paint p)
+    { ops++; super.drawText(s, index, count, x, y, p); }
+
+    @Override
+    public void drawTextRun(char[] s, int index, int count, int ctx_index,
+        int ctx_count, float x, float y, boolean rtl, Paint p)
+    {
+      ops++;
+      super.drawTextRun(s, index, count, ctx_index, ctx_count, x, y, rtl, p);
+    }
+
+    @Override
+    public void drawTextRun(CharSequence s, int start, int end,
+        int ctx_start, int ctx_end, float x, float y, boolean rtl, Paint p)
+    {
+      ops++;
+      super.drawTextRun(s, start, end, ctx_start, ctx_end, x, y, rtl, p);
+    }
+
+    @Override
+    public int save()
+    { ops++; return super.save(); }
+
+    @Override
+    public int saveLayer(float l, float t, float r, float b, Paint p)
+    { ops++; return super.saveLayer(l, t, r, b, p); }
+
+    @Override
+    public boolean clipRect(float l, float t, float r, float b)
+    { ops++; return super.clipRect(l, t, r, b); }
+
+    @Override
+    public boolean clipPath(Path path)
+    { ops++; return super.clipPath(path); }
+
+    @Override
+    public boolean clipPath(Path path, Region.Op op)
+    { ops++; return super.clipPath(path, op); }
+  }
+}
@@ -0,0 +1,119 @@
+package com.overboard.keyboard;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class UserComposeSequencesTest
+{
+  public UserComposeSequencesTest() {}
+
+  static final String XCOMPOSE =
+    "include \"%L\"\n"
+    + "# Comment\n"
+    + "<Multi_key> <exclam> <U2713>  : \"✔\"  U2714 # HEAVY CHECK MARK\n"
+    + "<Multi_key> <U2713> <x>       : \"ok\"\n"
+    + "<Multi_key> <o> <e>           : \"X\"\n"
+    + "<Multi_key> <U2714> <U2714>   : \"\\\"\\\\\"\n"
+    + "<Multi_key> <colon> <parenright> : \":)\"\n"
+    + "<Multi_key> <t> <a> <b>       : \"tab\"\n"
+    + "<Multi_key> <s> <h> <i>       : \"shift\"\n"
+    + "<dead_acute> <e>              : \"e\"\n"
+    + "<Multi_key> <unknown_name> <e> : \"e\"\n"
+    + "<Multi_key> <U1F600> <e>      : \"e\"\n";
+
+  @Test
+  public void parse() throws Exception
+  {
+    Map<String, String> seqs = parse(XCOMPOSE);
+    Map<String, String> exp = new TreeMap<String, String>();
+    exp.put("!✓", "✔");
+    exp.put("✓x", "ok");
+    exp.put("oe", "X");
+    exp.put("✔✔", "\"\\");
+    exp.put(":)", ":)");
+    exp.put("tab", "tab");
+    exp.put("shi", "shift");
+    assertEquals(exp, seqs);
+  }
+
+  @Test
+  public void merge() throws Exception
+  {
+    ComposeKey.Compiled c = compile(XCOMPOSE);
+    assertEquals(KeyValue.makeCharKey('✔'), apply(c, "!✓"));
+    assertEquals(KeyValue.makeStringKey("ok"), apply(c, "✓x"));
+    assertEquals(KeyValue.makeStringKey("\"\\"), apply(c, "✔✔"));
+    // Results are typed as is, even if they look like key names.
+    assertEquals(KeyValue.makeStringKey(":)"), apply(c, ":)"));
+    assertEquals(KeyValue.makeStringKey("tab"), apply(c, "tab"));
+    assertEquals(KeyValue.makeStringKey("shift"), apply(c, "shi"));
+    // The user's sequences take priority.
+    assertEquals(KeyValue.makeCharKey('X'), apply(c, "oe"));
+    // Other built-in sequences are kept.
+    assertEquals(KeyValue.makeCharKey('é'), apply(c, "'e"));
+    assertEquals(ComposeKey.apply(ComposeKeyData.compose, "\\n"),
+        apply(c, "\\n"));
+    assertEquals(ComposeKey.apply(ComposeKeyData.compose, "!!"),
+        apply(c, "!!"));
+    // Other initial states are unchanged.
+    assertEquals(KeyValue.makeCharKey('ẞ'),
+        c.apply(ComposeKeyData.shift, 'ß'));
+    assertEquals(KeyValue.makeCharKey('á'),
+        c.apply(ComposeKeyData.accent_aigu, 'a'));
+  }
+
+  @Test
+  public void cache() throws Exception
+  {
+    ComposeKey.Compiled c = compile(XCOMPOSE);
+    File f = File.createTempFile("user_compose", ".bin");
+    try
+    {
+      UserComposeSequences.write_cache(f, "key", c);
+      assertNull(UserComposeSequences.read_cache(f, "other key"));
+      ComposeKey.Compiled c2 = UserComposeSequences.read_cache(f, "key");
+      assertNotNull(c2);
+      assertArrayEquals(c.states, c2.states);
+      assertArrayEquals(c.edges, c2.edges);
+      assertEquals(KeyValue.makeStringKey("ok"), apply(c2, "✓x"));
+      assertEquals(KeyValue.makeStringKey("tab"), apply(c2, "tab"));
+    }
+    finally
+    {
+      f.delete();
+    }
+    assertNull(UserComposeSequences.read_cache(f, "key"));
+  }
+
+  static Map<String, String> parse(String s) throws Exception
+  {
+    Map<String, String> seqs = new TreeMap<String, String>();
+    UserComposeSequences.parse(new StringReader(s), seqs);
+    return seqs;
+  }
+
+  static ComposeKey.Compiled compile(String s) throws Exception
+  {
+    return UserComposeSequences.merge(ComposeKeyData.states,
+        ComposeKeyData.edges, ComposeKeyData.compose, parse(s));
+  }
+
+  /** Apply a sequence from the compose key. */
+  static KeyValue apply(ComposeKey.Compiled c, String seq)
+  {
+    int state = ComposeKeyData.compose;
+    KeyValue k = null;
+    for (int i = 0; i < seq.length(); i++)
+    {
+      k = c.apply(state, seq.charAt(i));
+      if (k == null || k.getKind() != KeyValue.Kind.Compose_pending)
+        break;
+      state = k.getPendingCompose();
+    }
+    return k;
+  }
+}
@@ -0,0 +1,39 @@
+package com.overboard.keyboard.dict;
+
+import java.io.File;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NextWordsTest
+{
+  public NextWordsTest() {}
+
+  @Test
+  public void predict() throws Exception
+  {
+    File f = File.createTempFile("user_ngrams", ".log");
+    f.deleteOnExit();
+    NextWords nw = new NextWords(UserDictionaryTest.open(f));
+    for (int i = 0; i < 3; i++)
+      nw.add("see", "you", "soon");
+    for (int i = 0; i < 2; i++)
+      nw.add("thank", "you", "so");
+    nw.add(null, "you", "too");
+    String[] words = new String[3];
+    int[] counts = new int[3];
+    int n = nw.predict("see", "you", false, "", words, counts);
+    assertEquals(2, n);
+    assertEquals("soon", words[0]);
+    assertEquals(3, counts[0]);
+    assertEquals("so", words[1]);
+    n = nw.predict("thank", "you", true, "", words, counts);
+    assertEquals(1, n);
+    assertEquals("so", words[0]);
+    n = nw.predict("see", "you", false, "soo", words, counts);
+    assertEquals(1, n);
+    assertEquals("soon", words[0]);
+    // Unknown context.
+    assertEquals(0, nw.predict(null, "me", false, "", words, counts));
+    assertEquals(0, nw.predict(null, "you", true, "", words, counts));
+  }
+}
@@ -0,0 +1,141 @@
+package com.overboard.keyboard.dict;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class UserDictionaryTest
+{
+  public UserDictionaryTest() {}
+
+  /** Run the I/O synchronously. */
+  static final Executor DIRECT = new Executor()
+  {
+    public void execute(Runnable r) { r.run(); }
+  };
+
+  /** Also used by the tests of the [suggestions] package. */
+  public static UserDictionary open(File f)
+  {
+    UserDictionary d = new UserDictionary(f, DIRECT);
+    d.load_async();
+    return d;
+  }
+
+  @Test
+  public void completions() throws Exception
+  {
+    File f = File.createTempFile("user_words", ".log");
+    f.deleteOnExit();
+    UserDictionary d = open(f);
+    d.add("hello", 2);
+    d.add("help", 5);
+    d.add("helm", 1);
+    d.add("world", 3);
+    String[] words = new String[3];
+    int[] counts = new int[3];
+    int n = d.completions("hel", words, counts);
+    // "helm" is not used enough to be suggested.
+    assertEquals(2, n);
+    assertEquals("help", words[0]);
+    assertEquals(5, counts[0]);
+    assertEquals("hello", words[1]);
+    assertEquals(1, d.count("helm"));
+  }
+
+  @Test
+  public void persistence() throws Exception
+  {
+    File f = File.createTempFile("user_words", ".log");
+    try
+    {
+      f.delete();
+      UserDictionary d = open(f);
+      d.add("hello", 1);
+      d.add("hello", 2);
+      d.add("tab\tword", 2); // Ignored
+      d.add("world", 1);
+      d.flush();
+      UserDictionary d2 = open(f);
+      assertEquals(3, d2.count("hello"));
+      assertEquals(1, d2.count("world"));
+      assertEquals(0, d2.count("tab\tword"));
+      // Enough entries to trigger a compaction.
+      for (int i = 0; i < 200; i++)
+      {
+        d2.add("world", 1);
+        d2.flush();
+      }
+      assertTrue(Files.readAllLines(f.toPath()).size() < 200);
+      UserDictionary d3 = open(f);
+      assertEquals(3, d3.count("hello"));
+      assertEquals(201, d3.count("world"));
+    }
+    finally
+    {
+      f.delete();
+    }
+  }
+
+  @Test
+  public void read_only_recovery() throws Exception
+  {
+    File f = File.createTempFile("user_words", ".log");
+    try
+    {
+      UserDictionary d = open(f);
+      d.add("hello", 2);
+      d.flush();
+      // As if the log had been read partially.
+      d._read_only = true;
+      d.add("hello", 1);
+      d.add("world", 1);
+      d.flush();
+      assertEquals(3, d.count("hello"));
+      assertEquals(1, d.count("world"));
+      assertFalse(d._read_only);
+      assertEquals(3, d._log_entries);
+      UserDictionary d2 = open(f);
+      assertEquals(3, d2.count("hello"));
+      assertEquals(1, d2.count("world"));
+    }
+    finally
+    {
+      f.delete();
+    }
+  }
+
+  @Test
+  public void buffered() throws Exception
+  {
+    File f = File.createTempFile("user_words", ".log");
+    try
+    {
+      UserDictionary d = open(f);
+      d.add("hello", 1);
+      d.add("hello", 1);
+      assertEquals(2, d.count("hello"));
+      assertEquals(0, f.length());
+      d.flush();
+      assertEquals(1, Files.readAllLines(f.toPath()).size());
+      // Written without waiting for [flush] once there are enough words.
+      for (int i = 0; i < UserDictionary.MAX_UNSAVED; i++)
+        d.add("w" + i, 1);
+      assertEquals(UserDictionary.MAX_UNSAVED + 1,
+          Files.readAllLines(f.toPath()).size());
+    }
+    finally
+    {
+      f.delete();
+    }
+  }
+
+  @Test
+  public void freq_of_count()
+  {
+    assertEquals(9, UserDictionary.freq_of_count(UserDictionary.MIN_COUNT));
+    assertEquals(15, UserDictionary.freq_of_count(1000));
+  }
+}
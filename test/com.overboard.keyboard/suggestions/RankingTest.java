@@ -0,0 +1,64 @@
+package com.overboard.keyboard.suggestions;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RankingTest
+{
+  public RankingTest() {}
+
+  @Test
+  public void exact_match_first()
+  {
+    Ranking r = new Ranking(3);
+    r.add("types", 15, Ranking.PREFIX, 1);
+    r.add("typ", 0, Ranking.EXACT, 1);
+    r.add("top", 15, Ranking.DISTANCE, 1);
+    assertEquals(Arrays.asList("typ", "types", "top"), r.top());
+  }
+
+  @Test
+  public void frequency_beats_kind()
+  {
+    Ranking r = new Ranking(3);
+    r.add("modulation", 2, Ranking.PREFIX, 1);
+    r.add("model", 15, Ranking.DISTANCE, 1);
+    r.add("modular", 14, Ranking.PREFIX, 1);
+    assertEquals(Arrays.asList("modular", "model", "modulation"), r.top());
+  }
+
+  @Test
+  public void keep_top_n()
+  {
+    Ranking r = new Ranking(2);
+    r.add("a", 1, Ranking.PREFIX, 1);
+    r.add("b", 5, Ranking.PREFIX, 1);
+    r.add("c", 3, Ranking.PREFIX, 1);
+    r.add("d", 0, Ranking.PREFIX, 1);
+    assertEquals(Arrays.asList("b", "c"), r.top());
+    r.clear();
+    assertEquals(Arrays.asList(), r.top());
+  }
+
+  @Test
+  public void same_score_keeps_order()
+  {
+    Ranking r = new Ranking(3);
+    r.add("a", 10, Ranking.PREFIX, 1);
+    r.add("b", 10, Ranking.PREFIX, 1);
+    r.add("c", 10, Ranking.PREFIX, 1);
+    assertEquals(Arrays.asList("a", "b", "c"), r.top());
+  }
+
+  @Test
+  public void deduplicate()
+  {
+    Ranking r = new Ranking(3);
+    r.add("type", 10, Ranking.DISTANCE, 1);
+    r.add("types", 9, Ranking.PREFIX, 1);
+    r.add("type", 10, Ranking.PREFIX, 1);
+    r.add("types", 0, Ranking.DISTANCE, 1);
+    assertEquals(Arrays.asList("type", "types"), r.top());
+  }
+}
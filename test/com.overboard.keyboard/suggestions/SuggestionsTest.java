@@ -0,0 +1,124 @@
+package com.overboard.keyboard.suggestions;
+
+import com.overboard.keyboard.dict.UserDictionary;
+import com.overboard.keyboard.dict.UserDictionaryTest;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SuggestionsTest
+{
+  public SuggestionsTest() {}
+
+  /** Tasks posted to the main thread. They are not run unless the test
+      calls [run_main], as if the main thread was busy handling keys. */
+  final Queue<Runnable> _main = new ConcurrentLinkedQueue<Runnable>();
+  final List<List<String>> _shown = new ArrayList<List<String>>();
+  ExecutorService _worker;
+  File _file;
+  UserDictionary _user_dict;
+  Suggestions _sugg;
+
+  @Before
+  public void setUp() throws Exception
+  {
+    _file = File.createTempFile("user_words", ".log");
+    _file.deleteOnExit();
+    _user_dict = UserDictionaryTest.open(_file);
+    _user_dict.add("hello", 3);
+    _user_dict.add("world", 3);
+    _worker = Executors.newSingleThreadExecutor();
+    _sugg = new Suggestions(r -> _main.add(r), _worker,
+        ws -> _shown.add(ws), null);
+  }
+
+  @After
+  public void tearDown()
+  {
+    _worker.shutdownNow();
+    _file.delete();
+  }
+
+  @Test
+  public void space_with_pending_query()
+  {
+    _sugg.start_query(query("hel"));
+    // The results haven't been delivered to the main thread yet.
+    assertEquals("hello", _sugg.best_suggestion());
+    assertEquals(Arrays.asList("hello"), last_shown());
+    // The results delivered later are not shown again.
+    run_main();
+    assertEquals(1, _shown.size());
+    assertEquals("hello", _sugg.best_suggestion());
+  }
+
+  @Test
+  public void space_after_results()
+  {
+    _sugg.start_query(query("hel"));
+    wait_worker();
+    run_main();
+    assertEquals(Arrays.asList("hello"), last_shown());
+    assertEquals("hello", _sugg.best_suggestion());
+    assertEquals(1, _shown.size());
+  }
+
+  @Test
+  public void stale_results_dropped()
+  {
+    _sugg.start_query(query("hel"));
+    wait_worker();
+    _sugg.start_query(query("wor"));
+    assertEquals("world", _sugg.best_suggestion());
+    run_main();
+    assertEquals(Arrays.asList("world"), last_shown());
+    assertEquals("world", _sugg.best_suggestion());
+  }
+
+  @Test
+  public void no_prediction_entered()
+  {
+    _sugg.start_query(new Suggestions.Query("", null, _user_dict, null, null,
+          null));
+    assertNull(_sugg.best_suggestion());
+  }
+
+  Suggestions.Query query(String word)
+  {
+    return new Suggestions.Query(word, null, _user_dict, null, null, null);
+  }
+
+  List<String> last_shown()
+  {
+    return _shown.get(_shown.size() - 1);
+  }
+
+  void run_main()
+  {
+    Runnable r;
+    while ((r = _main.poll()) != null)
+      r.run();
+  }
+
+  /** Wait for the tasks already posted to the worker. */
+  void wait_worker()
+  {
+    try
+    {
+      _worker.submit(() -> {}).get();
+    }
+    catch (Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}